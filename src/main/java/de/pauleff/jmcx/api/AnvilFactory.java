@@ -3,6 +3,7 @@ package de.pauleff.jmcx.api;
 import de.pauleff.jmcx.formats.FileFormat;
 import de.pauleff.jmcx.formats.anvil.AnvilReader;
 import de.pauleff.jmcx.formats.anvil.AnvilWriter;
+import de.pauleff.jmcx.formats.anvil.ReadMode;
 
 import java.io.File;
 import java.io.IOException;
@@ -27,6 +28,20 @@ public final class AnvilFactory
      * @throws IllegalArgumentException if file format unsupported
      */
     public static IAnvilReader createReader(File anvilFile) throws IOException
+    {
+        return createReader(anvilFile, ReadMode.RANDOM_ACCESS);
+    }
+
+    /**
+     * Creates a reader for the specified file using the given read mode.
+     *
+     * @param anvilFile .mca file to read
+     * @param readMode {@link ReadMode} used to access the file
+     * @return new {@link IAnvilReader} instance
+     * @throws IOException if file access fails
+     * @throws IllegalArgumentException if file format unsupported
+     */
+    public static IAnvilReader createReader(File anvilFile, ReadMode readMode) throws IOException
     {
         if (anvilFile == null)
         {
@@ -38,7 +53,12 @@ public final class AnvilFactory
             throw new IllegalArgumentException("Invalid or unsupported file format: " + anvilFile.getName());
         }
 
-        return new AnvilReader(anvilFile);
+        if (readMode == null)
+        {
+            throw new IllegalArgumentException("Read mode cannot be null");
+        }
+
+        return new AnvilReader(anvilFile, readMode);
     }
 
     /**
@@ -59,6 +79,25 @@ public final class AnvilFactory
         return createReader(new File(filePath));
     }
 
+    /**
+     * Creates a reader for the specified file path using the given read mode.
+     *
+     * @param filePath path to .mca file
+     * @param readMode {@link ReadMode} used to access the file
+     * @return new {@link IAnvilReader} instance
+     * @throws IOException if file access fails
+     * @throws IllegalArgumentException if file format unsupported
+     */
+    public static IAnvilReader createReader(String filePath, ReadMode readMode) throws IOException
+    {
+        if (filePath == null || filePath.trim().isEmpty())
+        {
+            throw new IllegalArgumentException("File path cannot be null or empty");
+        }
+
+        return createReader(new File(filePath), readMode);
+    }
+
     /**
      * Creates a writer for the specified file.
      *
@@ -1,7 +1,11 @@
 package de.pauleff.jmcx.api;
 
+import de.pauleff.jmcx.core.RegionHeader;
+
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
  * Interface for reading Minecraft Anvil (.mca) region files.
@@ -18,6 +22,27 @@ public interface IAnvilReader extends AutoCloseable
      */
     IRegion readRegion() throws IOException;
 
+    /**
+     * Reads the entire region from the file, decompressing and parsing chunks in parallel on the given executor.
+     * Sector data is still read sequentially. Unlike {@link #readRegion()} the NBT data is parsed up front,
+     * chunks whose NBT data cannot be parsed are treated as corrupt.
+     *
+     * @param executor executor used to decode chunks
+     * @return the {@link IRegion} with all chunks
+     * @throws IOException if reading fails
+     */
+    IRegion readRegion(Executor executor) throws IOException;
+
+    /**
+     * Reads the region lazily. Only the header is evaluated, chunks are lightweight handles
+     * whose data is read on first access and parsed on first {@link IChunk#getNBTData()}.
+     * The reader must stay open as long as chunk data of the returned region is accessed.
+     *
+     * @return the {@link IRegion} backed by this reader
+     * @throws IOException if the header is invalid or reading fails
+     */
+    IRegion readRegionLazily() throws IOException;
+
     /**
      * Reads a specific chunk from the region.
      *
@@ -28,6 +53,23 @@ public interface IAnvilReader extends AutoCloseable
      */
     Optional<IChunk> readChunk(int chunkX, int chunkZ) throws IOException;
 
+    /**
+     * Streams all stored chunks of the region one at a time instead of materializing the whole region.
+     * Empty slots are skipped. The stream may be made parallel and must be consumed before the reader is closed.
+     *
+     * @return {@link Stream} of stored {@link IChunk}s
+     * @throws IOException if reading the header fails
+     */
+    Stream<IChunk> streamChunks() throws IOException;
+
+    /**
+     * Gets the parsed region header, answering header-only questions
+     * (present chunks, allocated sizes, timestamps) without reading chunk data.
+     *
+     * @return the {@link RegionHeader} of the file
+     */
+    RegionHeader getHeader();
+
     /**
      * Gets the file format.
      *
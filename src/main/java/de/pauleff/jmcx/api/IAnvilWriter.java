@@ -1,6 +1,12 @@
 package de.pauleff.jmcx.api;
 
+import de.pauleff.jmcx.compression.AdaptiveCodecSelector;
+import de.pauleff.jmcx.compression.CodecSelection;
+import de.pauleff.jmcx.compression.CompressionPolicy;
+
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Interface for writing Minecraft Anvil (.mca) region files.
@@ -17,6 +23,16 @@ public interface IAnvilWriter extends AutoCloseable
      */
     void writeRegion(IRegion region) throws IOException;
 
+    /**
+     * Writes the complete region to file, compressing chunks in parallel on the given executor.
+     * The sector layout is computed and written sequentially afterwards, the file equals {@link #writeRegion(IRegion)}.
+     *
+     * @param region {@link IRegion} to write
+     * @param executor executor used to compress chunks
+     * @throws IOException if writing fails
+     */
+    void writeRegion(IRegion region, Executor executor) throws IOException;
+
     /**
      * Writes a chunk to the region file.
      *
@@ -39,6 +55,59 @@ public interface IAnvilWriter extends AutoCloseable
      */
     boolean isBackupEnabled();
 
+    /**
+     * Enables or disables atomic commit of region writes.
+     * When enabled, regions are written to a temporary file that is synced and renamed over the original,
+     * and backups are hard links to the previous file. Single chunk writes always happen in place.
+     *
+     * @param enabled true to write through a temporary file, false to overwrite in place
+     */
+    void setAtomicCommit(boolean enabled);
+
+    /**
+     * Checks if region writes are committed atomically.
+     *
+     * @return true if writing through a temporary file
+     */
+    boolean isAtomicCommit();
+
+    /**
+     * Sets the compression settings chunks are recompressed with when writing.
+     * Each chunk keeps its codec; by default payloads are written as they are.
+     *
+     * @param policy compression settings, or null to write payloads as they are
+     */
+    void setCompressionPolicy(CompressionPolicy policy);
+
+    /**
+     * Gets the compression settings chunks are recompressed with when writing.
+     *
+     * @return compression settings, or null if payloads are written as they are
+     */
+    CompressionPolicy getCompressionPolicy();
+
+    /**
+     * Enables adaptive codec selection, choosing codec and settings per chunk when writing.
+     * Takes precedence over the compression policy.
+     *
+     * @param selector codec selector, or null to disable adaptive selection
+     */
+    void setCodecSelector(AdaptiveCodecSelector selector);
+
+    /**
+     * Gets the adaptive codec selector.
+     *
+     * @return codec selector, or null if adaptive selection is disabled
+     */
+    AdaptiveCodecSelector getCodecSelector();
+
+    /**
+     * Gets the codec chosen for each chunk during the last region write with adaptive selection.
+     *
+     * @return list of selections in chunk order, empty if adaptive selection was disabled
+     */
+    List<CodecSelection> getCodecSelections();
+
     /**
      * Gets target file path.
      *
@@ -1,18 +1,16 @@
 package de.pauleff.jmcx.builder;
 
 import de.pauleff.jmcx.api.IChunk;
+import de.pauleff.jmcx.compression.ChunkCodec;
+import de.pauleff.jmcx.compression.CodecRegistry;
+import de.pauleff.jmcx.compression.CompressionPolicy;
 import de.pauleff.jmcx.core.Chunk;
 import de.pauleff.jmcx.core.ChunkPayload;
 import de.pauleff.jmcx.core.Location;
 import de.pauleff.jmcx.util.AnvilUtils;
 import de.pauleff.jnbt.api.ICompoundTag;
-import de.pauleff.jnbt.formats.binary.NBTWriter;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 import static de.pauleff.jmcx.util.AnvilConstants.CHUNKS_PER_REGION;
 
@@ -31,9 +29,12 @@ public class ChunkBuilder
     private int timestamp;
     private ICompoundTag nbtData;
     private byte compressionType = 2; // Default to Zlib compression
+    private ChunkCodec codec;
+    private CompressionPolicy compressionPolicy;
     private int index = -1;
     private Location location;
     private boolean validateCoordinates = true;
+    private Chunk source;
 
     private ChunkBuilder()
     {
@@ -52,6 +53,8 @@ public class ChunkBuilder
 
     /**
      * Creates a ChunkBuilder from an existing chunk.
+     * For a {@link Chunk} the NBT data is not parsed; unless it is replaced, the compressed payload is carried over
+     * as is, or recompressed if codec or compression settings change. Changed coordinates are patched into the payload.
      *
      * @param chunk {@link IChunk} to copy data from
      * @return ChunkBuilder populated with chunk data
@@ -72,6 +75,15 @@ public class ChunkBuilder
         {
             builder.location = concreteChunk.getLocation();
             builder.compressionType = concreteChunk.getPayload().getCompressionType();
+            if (builder.compressionType == CodecRegistry.CUSTOM_TYPE)
+            {
+                builder.codec = concreteChunk.getPayload().getCodec();
+            }
+            if (concreteChunk.getPayload().getLength() > 0)
+            {
+                builder.source = concreteChunk;
+                return builder;
+            }
         }
 
         ICompoundTag existingNbt = chunk.getNBTData();
@@ -172,6 +184,7 @@ public class ChunkBuilder
     public ChunkBuilder withNBTData(ICompoundTag nbtData)
     {
         this.nbtData = nbtData;
+        this.source = null;
         return this;
     }
 
@@ -183,6 +196,7 @@ public class ChunkBuilder
     public ChunkBuilder withZlibCompression()
     {
         this.compressionType = 2;
+        this.codec = null;
         return this;
     }
 
@@ -194,6 +208,19 @@ public class ChunkBuilder
     public ChunkBuilder withGZipCompression()
     {
         this.compressionType = 1;
+        this.codec = null;
+        return this;
+    }
+
+    /**
+     * Sets compression type to LZ4.
+     *
+     * @return this builder
+     */
+    public ChunkBuilder withLz4Compression()
+    {
+        this.compressionType = 4;
+        this.codec = null;
         return this;
     }
 
@@ -205,6 +232,42 @@ public class ChunkBuilder
     public ChunkBuilder withUncompressed()
     {
         this.compressionType = 3;
+        this.codec = null;
+        return this;
+    }
+
+    /**
+     * Sets the codec to compress with, e.g. a custom codec registered in the {@link CodecRegistry}.
+     *
+     * @param codec codec to compress chunk data with
+     * @return this builder
+     * @throws IllegalArgumentException if codec is null
+     */
+    public ChunkBuilder withCodec(ChunkCodec codec)
+    {
+        if (codec == null)
+        {
+            throw new IllegalArgumentException("Codec cannot be null");
+        }
+        this.compressionType = codec.getType();
+        this.codec = codec;
+        return this;
+    }
+
+    /**
+     * Sets compression level, strategy and buffer size.
+     *
+     * @param policy compression settings
+     * @return this builder
+     * @throws IllegalArgumentException if policy is null
+     */
+    public ChunkBuilder withCompressionPolicy(CompressionPolicy policy)
+    {
+        if (policy == null)
+        {
+            throw new IllegalArgumentException("Compression policy cannot be null");
+        }
+        this.compressionPolicy = policy;
         return this;
     }
 
@@ -268,6 +331,7 @@ public class ChunkBuilder
     public ChunkBuilder asEmptyChunk()
     {
         this.nbtData = null;
+        this.source = null;
         return this;
     }
 
@@ -298,49 +362,95 @@ public class ChunkBuilder
             this.location = Location.createEmptyLocation();
         }
 
+        if (this.source != null)
+        {
+            ChunkPayload sourcePayload = copySourcePayload();
+            if (sourcePayload != null)
+            {
+                this.location = AnvilUtils.createLocation(0, sourcePayload.getSectorCount());
+                Chunk copy = new Chunk(this.chunkX, this.chunkZ, source.getDataVersion(), this.index, this.location, this.timestamp, sourcePayload);
+                if (sourcePayload == source.getPayload() && !source.isModified())
+                {
+                    copy.markStored(source.getOrigin());
+                }
+                return copy;
+            }
+            this.nbtData = source.getNBTData();
+        }
+
         if (this.nbtData == null)
         {
             return new Chunk(this.index, this.location, this.timestamp, new byte[0]);
         } else
         {
             updateNBTCoordinates();
-            byte[] nbtPayload = createNBTPayload();
-            int sectorCount = AnvilUtils.calculateSectorCount(nbtPayload.length);
-            this.location = AnvilUtils.createLocation(0, sectorCount);
+            ChunkPayload nbtPayload = createNBTPayload();
+            this.location = AnvilUtils.createLocation(0, nbtPayload.getSectorCount());
             return new Chunk(this.index, this.location, this.timestamp, nbtPayload);
         }
     }
 
     /**
-     * Creates compressed NBT payload from NBT data.
+     * Copies the payload of the source chunk without parsing its NBT data.
+     * The compressed bytes are reused unless codec, compression settings or coordinates change.
      *
-     * @return compressed NBT payload
-     * @throws IOException if NBT serialization fails
+     * @return payload of the new chunk, or null if the coordinates cannot be patched and the NBT data must be rebuilt
+     * @throws IOException if the compression type is unknown or recompression fails
      */
-    private byte[] createNBTPayload() throws IOException
+    private ChunkPayload copySourcePayload() throws IOException
     {
-        if (nbtData == null)
+        ChunkPayload payload = source.getPayload();
+        ChunkCodec targetCodec = getCodec();
+
+        if (chunkX != source.getX() || chunkZ != source.getZ())
         {
-            return new byte[0];
+            return payload.relocate(chunkX, chunkZ, targetCodec, getCompressionPolicy()).orElse(null);
         }
-
-        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
-        try (DataOutputStream dos = new DataOutputStream(byteOutput);
-             NBTWriter writer = new NBTWriter(dos))
+        if (compressionPolicy == null && payload.getCodec().getId().equals(targetCodec.getId()))
         {
-            writer.write(nbtData);
+            return payload;
         }
-        byte[] nbtBytes = byteOutput.toByteArray();
+        return payload.transcode(targetCodec, getCompressionPolicy());
+    }
+
+    /**
+     * Gets the compression settings to compress with.
+     *
+     * @return explicitly set settings or {@link CompressionPolicy#DEFAULT}
+     */
+    private CompressionPolicy getCompressionPolicy()
+    {
+        return compressionPolicy != null ? compressionPolicy : CompressionPolicy.DEFAULT;
+    }
 
-        ChunkPayload tempPayload = new ChunkPayload(new byte[0]);
-        byte[] compressedData = tempPayload.compressData(nbtBytes, compressionType);
+    /**
+     * Gets the codec to compress with, resolved from the compression type unless set explicitly.
+     *
+     * @return codec of the new chunk
+     * @throws IOException if the compression type is unknown
+     */
+    private ChunkCodec getCodec() throws IOException
+    {
+        return codec != null
+                ? codec
+                : CodecRegistry.byType(compressionType).orElseThrow(() -> new IOException("Unknown compression type: " + compressionType));
+    }
 
-        ByteBuffer buffer = ByteBuffer.allocate(5 + compressedData.length).order(ByteOrder.BIG_ENDIAN);
-        buffer.putInt(compressedData.length);
-        buffer.put(compressionType);
-        buffer.put(compressedData);
+    /**
+     * Creates compressed NBT payload from NBT data.
+     * The NBT data is serialized straight into the compressor, which writes into the sector-aligned payload buffer.
+     *
+     * @return compressed NBT payload, external if it exceeds the region file's sector limit
+     * @throws IOException if NBT serialization fails or the compression type is unknown
+     */
+    private ChunkPayload createNBTPayload() throws IOException
+    {
+        if (nbtData == null)
+        {
+            return new ChunkPayload(new byte[0]);
+        }
 
-        return buffer.array();
+        return ChunkPayload.encode(nbtData, getCodec(), getCompressionPolicy());
     }
 
 
@@ -0,0 +1,382 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Picks a codec and compression settings per chunk by trial-compressing a sample of its data.
+ * Compression time is not measured but estimated from each candidate's fixed cost per byte,
+ * so the choice only depends on the data and written files are identical between runs and threads.
+ * The trial compression of all candidates is charged against the time budget first;
+ * among the candidates whose estimated time fits the rest, the smallest output wins.
+ * A faster candidate is preferred when its output is within the size tolerance of the smallest.
+ * If no candidate fits the budget, the fastest one is used.
+ * Chunks no larger than the sample are trial-compressed whole and the winning output is reused, see {@link #select(byte[])}.
+ * <p>
+ * Instances are immutable and thread-safe.
+ *
+ * @author Paul Ferlitz
+ */
+public final class AdaptiveCodecSelector
+{
+    private static final long DEFAULT_BUDGET_NANOS = Duration.ofMillis(5).toNanos();
+    private static final int DEFAULT_SAMPLE_SIZE = 32 * 1024;
+    private static final double DEFAULT_SIZE_TOLERANCE = 0.05;
+
+    private final List<Candidate> candidates;
+    private final long budgetNanos;
+    private final int sampleSize;
+    private final double sizeTolerance;
+
+    private AdaptiveCodecSelector(List<Candidate> candidates, long budgetNanos, int sampleSize, double sizeTolerance)
+    {
+        this.candidates = candidates;
+        this.budgetNanos = budgetNanos;
+        this.sampleSize = sampleSize;
+        this.sizeTolerance = sizeTolerance;
+    }
+
+    /**
+     * Creates a selector trying Zlib level 1, Zlib level 6 and LZ4 within an estimated 5 ms per chunk.
+     *
+     * @return default selector
+     */
+    public static AdaptiveCodecSelector createDefault()
+    {
+        ZlibCodec zlib = new ZlibCodec();
+        return of(Candidate.of(zlib, CompressionPolicy.FASTEST),
+                Candidate.of(zlib, CompressionPolicy.DEFAULT),
+                Candidate.of(new Lz4Codec(), CompressionPolicy.DEFAULT));
+    }
+
+    /**
+     * Creates a selector over the given candidates with the default budget, sample size and tolerance.
+     *
+     * @param candidates codec and settings combinations to choose from
+     * @return selector
+     * @throws IllegalArgumentException if no candidates are given or one is null
+     */
+    public static AdaptiveCodecSelector of(Candidate... candidates)
+    {
+        if (candidates == null || candidates.length == 0)
+        {
+            throw new IllegalArgumentException("At least one candidate is required");
+        }
+        if (Arrays.stream(candidates).anyMatch(candidate -> candidate == null))
+        {
+            throw new IllegalArgumentException("Candidates cannot be null");
+        }
+        return new AdaptiveCodecSelector(List.of(candidates), DEFAULT_BUDGET_NANOS, DEFAULT_SAMPLE_SIZE, DEFAULT_SIZE_TOLERANCE);
+    }
+
+    /**
+     * Creates a copy with a different time budget per chunk.
+     *
+     * @param budget estimated compression time a chunk may take, including trial compression
+     * @return selector
+     * @throws IllegalArgumentException if budget is null or negative
+     */
+    public AdaptiveCodecSelector withTimeBudget(Duration budget)
+    {
+        if (budget == null || budget.isNegative())
+        {
+            throw new IllegalArgumentException("Time budget must be a non-negative duration, got: " + budget);
+        }
+        return new AdaptiveCodecSelector(candidates, budget.toNanos(), sampleSize, sizeTolerance);
+    }
+
+    /**
+     * Creates a copy with a different sample size.
+     * Larger samples give better estimates at the cost of more trial compression.
+     *
+     * @param sampleSize bytes of each chunk to trial-compress
+     * @return selector
+     * @throws IllegalArgumentException if sampleSize is not positive
+     */
+    public AdaptiveCodecSelector withSampleSize(int sampleSize)
+    {
+        if (sampleSize <= 0)
+        {
+            throw new IllegalArgumentException("Sample size must be positive, got: " + sampleSize);
+        }
+        return new AdaptiveCodecSelector(candidates, budgetNanos, sampleSize, sizeTolerance);
+    }
+
+    /**
+     * Creates a copy with a different size tolerance.
+     *
+     * @param sizeTolerance fraction a faster candidate's output may exceed the smallest output by, e.g. 0.05
+     * @return selector
+     * @throws IllegalArgumentException if sizeTolerance is negative or not a number
+     */
+    public AdaptiveCodecSelector withSizeTolerance(double sizeTolerance)
+    {
+        if (!(sizeTolerance >= 0))
+        {
+            throw new IllegalArgumentException("Size tolerance must be non-negative, got: " + sizeTolerance);
+        }
+        return new AdaptiveCodecSelector(candidates, budgetNanos, sampleSize, sizeTolerance);
+    }
+
+    /**
+     * Chooses the candidate to compress the given data with.
+     *
+     * @param data uncompressed chunk data
+     * @return chosen candidate
+     * @throws IOException if trial compression fails
+     */
+    public Candidate choose(byte[] data) throws IOException
+    {
+        return select(data).getCandidate();
+    }
+
+    /**
+     * Chooses the candidate to compress the given data with, keeping its trial output if the trial covered all data.
+     *
+     * @param data uncompressed chunk data
+     * @return chosen candidate and, for data no larger than the sample, its compressed data
+     * @throws IOException if trial compression fails
+     */
+    public Choice select(byte[] data) throws IOException
+    {
+        if (candidates.size() == 1 || data.length == 0)
+        {
+            return new Choice(candidates.get(0), null);
+        }
+
+        int sampleLength = Math.min(data.length, sampleSize);
+        int sampleStart = (data.length - sampleLength) / 2;
+        boolean whole = sampleLength == data.length;
+        byte[] sample = whole ? data : Arrays.copyOfRange(data, sampleStart, sampleStart + sampleLength);
+        double scale = (double) data.length / sampleLength;
+
+        byte[][] outputs = new byte[candidates.size()][];
+        double[] estimatedSizes = new double[candidates.size()];
+        double[] estimatedNanos = new double[candidates.size()];
+        double trialNanos = 0;
+        int fastest = 0;
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            Candidate candidate = candidates.get(i);
+            outputs[i] = CodecRegistry.encode(candidate.getCodec(), sample, candidate.getPolicy());
+            estimatedSizes[i] = outputs[i].length * scale;
+            estimatedNanos[i] = whole ? 0 : data.length * candidate.getNanosPerByte();
+            trialNanos += sampleLength * candidate.getNanosPerByte();
+
+            if (candidate.getNanosPerByte() < candidates.get(fastest).getNanosPerByte())
+            {
+                fastest = i;
+            }
+        }
+
+        double remainingNanos = budgetNanos - trialNanos;
+        double smallestInBudget = Double.MAX_VALUE;
+        for (int i = 0; i < candidates.size(); i++)
+        {
+            if (estimatedNanos[i] <= remainingNanos)
+            {
+                smallestInBudget = Math.min(smallestInBudget, estimatedSizes[i]);
+            }
+        }
+
+        int chosen = fastest;
+        if (smallestInBudget != Double.MAX_VALUE)
+        {
+            chosen = -1;
+            for (int i = 0; i < candidates.size(); i++)
+            {
+                if (estimatedNanos[i] <= remainingNanos && estimatedSizes[i] <= smallestInBudget * (1 + sizeTolerance)
+                        && (chosen == -1 || candidates.get(i).getNanosPerByte() < candidates.get(chosen).getNanosPerByte()))
+                {
+                    chosen = i;
+                }
+            }
+        }
+        return new Choice(candidates.get(chosen), whole ? outputs[chosen] : null);
+    }
+
+    /**
+     * Gets the candidates this selector chooses from.
+     *
+     * @return unmodifiable list of candidates
+     */
+    public List<Candidate> getCandidates()
+    {
+        return candidates;
+    }
+
+    /**
+     * Returns string representation of AdaptiveCodecSelector.
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString()
+    {
+        return "AdaptiveCodecSelector{" +
+                "candidates=" + candidates +
+                ", budgetNanos=" + budgetNanos +
+                ", sampleSize=" + sampleSize +
+                ", sizeTolerance=" + sizeTolerance +
+                '}';
+    }
+
+    /**
+     * Candidate chosen for a chunk.
+     */
+    public static final class Choice
+    {
+        private final Candidate candidate;
+        private final byte[] compressedData;
+
+        private Choice(Candidate candidate, byte[] compressedData)
+        {
+            this.candidate = candidate;
+            this.compressedData = compressedData;
+        }
+
+        /**
+         * Gets the chosen candidate.
+         *
+         * @return candidate
+         */
+        public Candidate getCandidate()
+        {
+            return candidate;
+        }
+
+        /**
+         * Gets the data compressed with the chosen candidate during the trial, if the trial covered all data.
+         *
+         * @return data as stored after the compression type byte, empty if the data must still be compressed
+         */
+        public Optional<byte[]> getCompressedData()
+        {
+            return Optional.ofNullable(compressedData);
+        }
+    }
+
+    /**
+     * Codec and compression settings a chunk may be compressed with, along with their estimated cost.
+     */
+    public static final class Candidate
+    {
+        private final ChunkCodec codec;
+        private final CompressionPolicy policy;
+        private final double nanosPerByte;
+
+        private Candidate(ChunkCodec codec, CompressionPolicy policy, double nanosPerByte)
+        {
+            this.codec = codec;
+            this.policy = policy;
+            this.nanosPerByte = nanosPerByte;
+        }
+
+        /**
+         * Creates a candidate with a typical cost for its codec and compression level.
+         *
+         * @param codec codec to compress with
+         * @param policy compression settings
+         * @return candidate
+         * @throws IllegalArgumentException if codec or policy is null
+         */
+        public static Candidate of(ChunkCodec codec, CompressionPolicy policy)
+        {
+            if (codec == null || policy == null)
+            {
+                throw new IllegalArgumentException("Codec and compression policy cannot be null");
+            }
+            return new Candidate(codec, policy, estimateNanosPerByte(codec, policy));
+        }
+
+        /**
+         * Creates a candidate with an explicit cost, e.g. measured once on the target machine.
+         *
+         * @param codec codec to compress with
+         * @param policy compression settings
+         * @param nanosPerByte estimated compression time per uncompressed byte in nanoseconds
+         * @return candidate
+         * @throws IllegalArgumentException if codec or policy is null or nanosPerByte is negative or not a number
+         */
+        public static Candidate of(ChunkCodec codec, CompressionPolicy policy, double nanosPerByte)
+        {
+            if (codec == null || policy == null)
+            {
+                throw new IllegalArgumentException("Codec and compression policy cannot be null");
+            }
+            if (!(nanosPerByte >= 0))
+            {
+                throw new IllegalArgumentException("Cost per byte must be non-negative, got: " + nanosPerByte);
+            }
+            return new Candidate(codec, policy, nanosPerByte);
+        }
+
+        /**
+         * Estimates the compression time per byte from rough throughputs of the built-in codecs.
+         *
+         * @param codec codec to compress with
+         * @param policy compression settings
+         * @return estimated nanoseconds per uncompressed byte
+         */
+        private static double estimateNanosPerByte(ChunkCodec codec, CompressionPolicy policy)
+        {
+            return switch (codec.getType())
+            {
+                case 3 -> 0.2;
+                case 4 -> 2.0;
+                case 1, 2 -> switch (policy.getLevel())
+                {
+                    case 0 -> 1.0;
+                    case 1, 2, 3 -> 10.0;
+                    case 7, 8, 9 -> 80.0;
+                    default -> 30.0;
+                };
+                default -> 30.0;
+            };
+        }
+
+        /**
+         * Gets the codec.
+         *
+         * @return codec
+         */
+        public ChunkCodec getCodec()
+        {
+            return codec;
+        }
+
+        /**
+         * Gets the compression settings.
+         *
+         * @return compression settings
+         */
+        public CompressionPolicy getPolicy()
+        {
+            return policy;
+        }
+
+        /**
+         * Gets the estimated compression time per byte.
+         *
+         * @return estimated nanoseconds per uncompressed byte
+         */
+        public double getNanosPerByte()
+        {
+            return nanosPerByte;
+        }
+
+        /**
+         * Returns string representation of Candidate.
+         *
+         * @return codec id and level
+         */
+        @Override
+        public String toString()
+        {
+            return codec.getId() + "@" + policy.getLevel();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Compression algorithm for chunk payloads.
+ * Built-in codecs cover the standard compression types 1-4. Additional codecs use the custom type 127 and are
+ * identified on disk by their namespaced id, see {@link CodecRegistry}.
+ * Implementations must be thread-safe.
+ *
+ * @author Paul Ferlitz
+ */
+public interface ChunkCodec
+{
+    /**
+     * Gets the compression type byte stored in the chunk header.
+     *
+     * @return compression type (1-126 for standard types, {@link CodecRegistry#CUSTOM_TYPE} for custom codecs)
+     */
+    byte getType();
+
+    /**
+     * Gets the namespaced id of this codec, e.g. "minecraft:deflate".
+     * For custom codecs this id is written in front of the compressed data.
+     *
+     * @return namespaced codec id
+     */
+    String getId();
+
+    /**
+     * Decompresses data.
+     *
+     * @param data compressed data, its position must not be modified
+     * @return decompressed data
+     * @throws IOException if the data is malformed
+     */
+    byte[] decompress(ByteBuffer data) throws IOException;
+
+    /**
+     * Opens a stream decompressing data on the fly.
+     *
+     * @param data compressed data, its position must not be modified
+     * @return stream of decompressed data
+     * @throws IOException if the stream cannot be opened
+     */
+    InputStream openStream(ByteBuffer data) throws IOException;
+
+    /**
+     * Compresses data.
+     *
+     * @param data uncompressed data
+     * @return compressed data
+     * @throws IOException if compression fails
+     */
+    byte[] compress(byte[] data) throws IOException;
+
+    /**
+     * Compresses data with the given settings.
+     * Codecs without tunable settings fall back to {@link #compress(byte[])}.
+     *
+     * @param data uncompressed data
+     * @param policy compression settings
+     * @return compressed data
+     * @throws IOException if compression fails
+     */
+    default byte[] compress(byte[] data, CompressionPolicy policy) throws IOException
+    {
+        return compress(data);
+    }
+
+    /**
+     * Opens a stream compressing data on the fly into a target.
+     * Closing the stream finishes the compressed data but does not close the target.
+     * The default collects the input and passes it to {@link #compress(byte[], CompressionPolicy)} on close;
+     * codecs able to compress incrementally override it to avoid holding the uncompressed data.
+     *
+     * @param out target for the compressed data
+     * @param policy compression settings
+     * @return stream of uncompressed data
+     * @throws IOException if the stream cannot be opened
+     */
+    default OutputStream openCompressor(OutputStream out, CompressionPolicy policy) throws IOException
+    {
+        return new ByteArrayOutputStream()
+        {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException
+            {
+                if (!closed)
+                {
+                    closed = true;
+                    out.write(compress(toByteArray(), policy));
+                }
+            }
+        };
+    }
+}
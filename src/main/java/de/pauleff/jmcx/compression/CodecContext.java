@@ -0,0 +1,312 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Pooled set of native zlib streams and a growable scratch buffer.
+ * Contexts are borrowed per operation and handed back afterwards, so decoding a whole world
+ * reuses a handful of Inflaters instead of allocating one per chunk.
+ *
+ * @author Paul Ferlitz
+ */
+final class CodecContext
+{
+    private static final int MAX_POOLED_CONTEXTS = Runtime.getRuntime().availableProcessors() * 4;
+    private static final int MAX_RETAINED_BUFFER_BYTES = 8 * 1024 * 1024;
+    private static final int MIN_BUFFER_BYTES = 16 * 1024;
+
+    private static final ConcurrentLinkedQueue<CodecContext> POOL = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger POOLED = new AtomicInteger();
+    private static volatile int recentOutputSize = 64 * 1024;
+
+    private final CRC32 crc = new CRC32();
+    private Inflater zlibInflater;
+    private Inflater rawInflater;
+    private Deflater zlibDeflater;
+    private Deflater rawDeflater;
+    private byte[] buffer;
+    private byte[] blockBuffer;
+    private int[] hashTable;
+
+    private CodecContext()
+    {
+    }
+
+    /**
+     * Borrows a context from the pool or creates a new one.
+     *
+     * @return context owned by the caller until {@link #release()}
+     */
+    static CodecContext acquire()
+    {
+        CodecContext context = POOL.poll();
+        if (context == null)
+        {
+            return new CodecContext();
+        }
+        POOLED.decrementAndGet();
+        return context;
+    }
+
+    /**
+     * Resets all streams and hands the context back to the pool.
+     * Contexts beyond the pool limit release their native memory immediately.
+     */
+    void release()
+    {
+        if (buffer != null && buffer.length > MAX_RETAINED_BUFFER_BYTES)
+        {
+            buffer = null;
+        }
+        if (blockBuffer != null && blockBuffer.length > MAX_RETAINED_BUFFER_BYTES)
+        {
+            blockBuffer = null;
+        }
+
+        if (POOLED.incrementAndGet() > MAX_POOLED_CONTEXTS)
+        {
+            POOLED.decrementAndGet();
+            end();
+            return;
+        }
+
+        if (zlibInflater != null) zlibInflater.reset();
+        if (rawInflater != null) rawInflater.reset();
+        if (zlibDeflater != null) zlibDeflater.reset();
+        if (rawDeflater != null) rawDeflater.reset();
+        crc.reset();
+        POOL.offer(this);
+    }
+
+    /**
+     * Gets the Inflater, either for zlib-wrapped or raw deflate data.
+     *
+     * @param nowrap true for raw deflate data (as used inside GZip)
+     * @return reset Inflater
+     */
+    Inflater inflater(boolean nowrap)
+    {
+        if (nowrap)
+        {
+            if (rawInflater == null) rawInflater = new Inflater(true);
+            return rawInflater;
+        }
+        if (zlibInflater == null) zlibInflater = new Inflater();
+        return zlibInflater;
+    }
+
+    /**
+     * Gets the Deflater, either producing zlib-wrapped or raw deflate data.
+     *
+     * @param nowrap true for raw deflate data (as used inside GZip)
+     * @return reset Deflater
+     */
+    Deflater deflater(boolean nowrap)
+    {
+        if (nowrap)
+        {
+            if (rawDeflater == null) rawDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            return rawDeflater;
+        }
+        if (zlibDeflater == null) zlibDeflater = new Deflater();
+        return zlibDeflater;
+    }
+
+    /**
+     * Gets the CRC32 used for GZip trailers.
+     *
+     * @return reset CRC32
+     */
+    CRC32 crc()
+    {
+        return crc;
+    }
+
+    /**
+     * Gets the scratch buffer, sized to at least the given length or the size of recent outputs.
+     *
+     * @param minSize minimum buffer length in bytes
+     * @return scratch buffer
+     */
+    byte[] buffer(int minSize)
+    {
+        if (buffer == null || buffer.length < minSize)
+        {
+            buffer = new byte[Math.max(Math.max(minSize, recentOutputSize), MIN_BUFFER_BYTES)];
+        }
+        return buffer;
+    }
+
+    /**
+     * Gets a second scratch buffer for compressed input that is not backed by an array.
+     *
+     * @param minSize minimum buffer length in bytes
+     * @return block buffer
+     */
+    byte[] blockBuffer(int minSize)
+    {
+        if (blockBuffer == null || blockBuffer.length < minSize)
+        {
+            blockBuffer = new byte[Math.max(minSize, MIN_BUFFER_BYTES)];
+        }
+        return blockBuffer;
+    }
+
+    /**
+     * Gets the match table used by the LZ4 compressor.
+     *
+     * @param size number of entries
+     * @return match table, contents undefined
+     */
+    int[] hashTable(int size)
+    {
+        if (hashTable == null || hashTable.length != size)
+        {
+            hashTable = new int[size];
+        }
+        return hashTable;
+    }
+
+    /**
+     * Doubles the scratch buffer, keeping its first used bytes.
+     *
+     * @param used number of bytes to keep
+     * @return grown scratch buffer
+     */
+    byte[] grow(int used)
+    {
+        int newSize = buffer.length > Integer.MAX_VALUE / 2 - 16 ? Integer.MAX_VALUE - 16 : buffer.length * 2;
+        if (newSize <= buffer.length)
+        {
+            throw new OutOfMemoryError("Required scratch buffer exceeds maximum array size");
+        }
+        byte[] grown = new byte[newSize];
+        System.arraycopy(buffer, 0, grown, 0, used);
+        buffer = grown;
+        return buffer;
+    }
+
+    /**
+     * Grows the scratch buffer until it holds at least minSize bytes, keeping its first used bytes.
+     *
+     * @param used number of bytes to keep
+     * @param minSize minimum buffer length in bytes
+     * @return scratch buffer
+     */
+    byte[] ensureCapacity(int used, int minSize)
+    {
+        byte[] out = buffer(used);
+        while (out.length < minSize)
+        {
+            out = grow(used);
+        }
+        return out;
+    }
+
+    /**
+     * Inflates a complete deflate stream into the scratch buffer.
+     * The input buffer's position is not modified.
+     *
+     * @param inflater Inflater of this context
+     * @param input compressed data
+     * @return number of decompressed bytes at the start of the scratch buffer
+     * @throws IOException if the data is malformed or truncated
+     */
+    int inflate(Inflater inflater, ByteBuffer input) throws IOException
+    {
+        inflater.setInput(input.duplicate());
+        byte[] out = buffer(input.remaining() * 4);
+        int length = 0;
+        try
+        {
+            while (!inflater.finished())
+            {
+                if (length == out.length)
+                {
+                    out = grow(length);
+                }
+
+                int count = inflater.inflate(out, length, out.length - length);
+                if (count == 0 && !inflater.finished())
+                {
+                    if (inflater.needsDictionary())
+                    {
+                        throw new ZipException("Compressed data requires a preset dictionary");
+                    }
+                    if (inflater.needsInput())
+                    {
+                        throw new EOFException("Unexpected end of ZLIB input stream");
+                    }
+                }
+                length += count;
+            }
+        } catch (DataFormatException e)
+        {
+            String message = e.getMessage();
+            throw new ZipException(message != null ? message : "Invalid ZLIB data format");
+        }
+        return length;
+    }
+
+    /**
+     * Deflates data into the scratch buffer.
+     *
+     * @param deflater Deflater of this context
+     * @param data uncompressed data
+     * @param offset number of bytes to leave free at the start of the scratch buffer
+     * @param policy level, strategy and initial buffer size to use
+     * @return end offset of the compressed data in the scratch buffer
+     */
+    int deflate(Deflater deflater, byte[] data, int offset, CompressionPolicy policy)
+    {
+        deflater.setLevel(policy.getLevel());
+        deflater.setStrategy(policy.getStrategy().deflaterStrategy);
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] out = buffer(Math.max(policy.getBufferSize(), offset + data.length / 2 + 64));
+        int length = offset;
+        while (!deflater.finished())
+        {
+            if (length == out.length)
+            {
+                out = grow(length);
+            }
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        return length;
+    }
+
+    /**
+     * Copies the used part of the scratch buffer into an exactly sized array.
+     * The size is remembered as a hint for the initial size of future scratch buffers.
+     *
+     * @param length number of used bytes
+     * @return copy of the used bytes
+     */
+    byte[] result(int length)
+    {
+        recentOutputSize = length;
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Releases the native memory of all streams.
+     */
+    private void end()
+    {
+        if (zlibInflater != null) zlibInflater.end();
+        if (rawInflater != null) rawInflater.end();
+        if (zlibDeflater != null) zlibDeflater.end();
+        if (rawDeflater != null) rawDeflater.end();
+    }
+}
@@ -0,0 +1,254 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of {@link ChunkCodec}s, looked up by compression type or namespaced id.
+ * The built-in GZip, Zlib, uncompressed and LZ4 codecs are always present. Further codecs are picked up from
+ * {@link ServiceLoader} providers of {@link ChunkCodec} or registered at runtime via {@link #register(ChunkCodec)}.
+ * <p>
+ * Custom codecs use compression type 127. Their payload starts with the codec id as a big-endian unsigned short
+ * length followed by the UTF-8 id, then the compressed data.
+ *
+ * @author Paul Ferlitz
+ */
+public final class CodecRegistry
+{
+    /**
+     * Compression type of custom codecs identified by their namespaced id.
+     */
+    public static final byte CUSTOM_TYPE = 127;
+
+    private static final Pattern NAMESPACED_ID = Pattern.compile("[a-z0-9_.-]+:[a-z0-9_./-]+");
+    private static final Map<Byte, ChunkCodec> BY_TYPE = new ConcurrentHashMap<>();
+    private static final Map<String, ChunkCodec> BY_ID = new ConcurrentHashMap<>();
+
+    static
+    {
+        for (ChunkCodec codec : List.of(new GZipCodec(), new ZlibCodec(), new UncompressedCodec(), new Lz4Codec()))
+        {
+            register(codec);
+        }
+
+        try
+        {
+            for (ChunkCodec codec : ServiceLoader.load(ChunkCodec.class))
+            {
+                try
+                {
+                    register(codec);
+                } catch (IllegalArgumentException e)
+                {
+                    System.err.printf("Warning: Ignoring chunk codec %s: %s%n", codec.getClass().getName(), e.getMessage());
+                }
+            }
+        } catch (ServiceConfigurationError e)
+        {
+            System.err.printf("Warning: Failed to load chunk codec providers: %s%n", e.getMessage());
+        }
+    }
+
+    private CodecRegistry()
+    {
+    }
+
+    /**
+     * Registers a codec, replacing any codec with the same type (standard codecs) or id (custom codecs).
+     *
+     * @param codec codec to register
+     * @throws IllegalArgumentException if the codec is null, its type is out of range or its id is not namespaced
+     */
+    public static void register(ChunkCodec codec)
+    {
+        if (codec == null)
+        {
+            throw new IllegalArgumentException("Codec cannot be null");
+        }
+
+        byte type = codec.getType();
+        String id = codec.getId();
+        if (type < 1)
+        {
+            throw new IllegalArgumentException(String.format("Compression type must be between 1 and %d, got: %d", CUSTOM_TYPE, type));
+        }
+        if (id == null || !NAMESPACED_ID.matcher(id).matches())
+        {
+            throw new IllegalArgumentException(String.format("Codec id must be a namespaced id like 'example:zstd', got: %s", id));
+        }
+
+        if (type != CUSTOM_TYPE)
+        {
+            ChunkCodec previous = BY_TYPE.put(type, codec);
+            if (previous != null && !previous.getId().equals(id))
+            {
+                BY_ID.remove(previous.getId(), previous);
+            }
+        }
+        BY_ID.put(id, codec);
+    }
+
+    /**
+     * Gets the codec of a standard compression type.
+     * Custom codecs cannot be found by type, since type 127 is shared between them.
+     *
+     * @param type compression type byte
+     * @return codec, or empty if the type is unknown or custom
+     */
+    public static Optional<ChunkCodec> byType(byte type)
+    {
+        return Optional.ofNullable(BY_TYPE.get(type));
+    }
+
+    /**
+     * Gets a codec by its namespaced id.
+     *
+     * @param id namespaced codec id
+     * @return codec, or empty if no codec with that id is registered
+     */
+    public static Optional<ChunkCodec> byId(String id)
+    {
+        return id == null ? Optional.empty() : Optional.ofNullable(BY_ID.get(id));
+    }
+
+    /**
+     * Gets all registered codecs.
+     *
+     * @return unmodifiable snapshot of registered codecs
+     */
+    public static Collection<ChunkCodec> getCodecs()
+    {
+        return List.copyOf(BY_ID.values());
+    }
+
+    /**
+     * Resolves the codec of stored chunk data.
+     *
+     * @param type compression type byte from the chunk header
+     * @param data stored data, starting with the codec id for custom codecs; its position is not modified
+     * @return codec able to decompress the data
+     * @throws IOException if the type or custom codec id is unknown
+     */
+    public static ChunkCodec resolve(byte type, ByteBuffer data) throws IOException
+    {
+        if (type == CUSTOM_TYPE)
+        {
+            String id = readCustomId(data);
+            return byId(id).orElseThrow(() -> new IOException("Unknown custom compression codec: " + id));
+        }
+        return byType(type).orElseThrow(() -> new IOException("Unknown compression type: " + type));
+    }
+
+    /**
+     * Gets the compressed data without the custom codec id.
+     *
+     * @param type compression type byte from the chunk header
+     * @param data stored data; its position is not modified
+     * @return view of the compressed data, the data itself for standard types
+     * @throws IOException if the custom codec header is truncated
+     */
+    public static ByteBuffer stripHeader(byte type, ByteBuffer data) throws IOException
+    {
+        if (type != CUSTOM_TYPE)
+        {
+            return data;
+        }
+        int headerLength = 2 + readCustomId(data).getBytes(StandardCharsets.UTF_8).length;
+        return data.slice(data.position() + headerLength, data.remaining() - headerLength);
+    }
+
+    /**
+     * Compresses data with a codec and prepends the codec id for custom codecs.
+     *
+     * @param codec codec to compress with
+     * @param data uncompressed data
+     * @return data as stored after the compression type byte
+     * @throws IOException if compression fails
+     */
+    public static byte[] encode(ChunkCodec codec, byte[] data) throws IOException
+    {
+        return encode(codec, data, CompressionPolicy.DEFAULT);
+    }
+
+    /**
+     * Compresses data with a codec and settings and prepends the codec id for custom codecs.
+     *
+     * @param codec codec to compress with
+     * @param data uncompressed data
+     * @param policy compression settings
+     * @return data as stored after the compression type byte
+     * @throws IOException if compression fails
+     */
+    public static byte[] encode(ChunkCodec codec, byte[] data, CompressionPolicy policy) throws IOException
+    {
+        byte[] compressed = codec.compress(data, policy);
+        if (codec.getType() != CUSTOM_TYPE)
+        {
+            return compressed;
+        }
+
+        byte[] id = codec.getId().getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 + id.length + compressed.length)
+                .putShort((short) id.length)
+                .put(id)
+                .put(compressed)
+                .array();
+    }
+
+    /**
+     * Writes the codec id stored in front of custom compressed data, nothing for standard codecs.
+     * Used when compressing through {@link ChunkCodec#openCompressor}, where {@link #encode} cannot prepend it.
+     *
+     * @param codec codec the following data is compressed with
+     * @param out target, positioned right after the compression type byte
+     * @throws IOException if writing fails
+     */
+    public static void writeHeader(ChunkCodec codec, OutputStream out) throws IOException
+    {
+        if (codec.getType() != CUSTOM_TYPE)
+        {
+            return;
+        }
+
+        byte[] id = codec.getId().getBytes(StandardCharsets.UTF_8);
+        out.write(id.length >>> 8);
+        out.write(id.length);
+        out.write(id);
+    }
+
+    /**
+     * Reads the codec id in front of custom compressed data.
+     *
+     * @param data stored data; its position is not modified
+     * @return namespaced codec id
+     * @throws IOException if the header is truncated
+     */
+    private static String readCustomId(ByteBuffer data) throws IOException
+    {
+        int start = data.position();
+        if (data.remaining() < 2)
+        {
+            throw new IOException("Truncated custom compression header");
+        }
+
+        int length = Short.toUnsignedInt(data.getShort(start));
+        if (data.remaining() < 2 + length)
+        {
+            throw new IOException("Truncated custom compression header");
+        }
+
+        byte[] id = new byte[length];
+        data.get(start + 2, id);
+        return new String(id, StandardCharsets.UTF_8);
+    }
+}
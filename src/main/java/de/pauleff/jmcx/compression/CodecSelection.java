@@ -0,0 +1,100 @@
+package de.pauleff.jmcx.compression;
+
+/**
+ * Records which codec and settings a chunk was compressed with and the resulting size.
+ *
+ * @author Paul Ferlitz
+ */
+public final class CodecSelection
+{
+    private final int index;
+    private final ChunkCodec codec;
+    private final CompressionPolicy policy;
+    private final int uncompressedSize;
+    private final int compressedSize;
+
+    /**
+     * Creates a selection record.
+     *
+     * @param index chunk index within the region (0-1023)
+     * @param codec codec the chunk was compressed with
+     * @param policy compression settings used
+     * @param uncompressedSize size of the uncompressed data in bytes
+     * @param compressedSize size of the stored data in bytes
+     */
+    public CodecSelection(int index, ChunkCodec codec, CompressionPolicy policy, int uncompressedSize, int compressedSize)
+    {
+        this.index = index;
+        this.codec = codec;
+        this.policy = policy;
+        this.uncompressedSize = uncompressedSize;
+        this.compressedSize = compressedSize;
+    }
+
+    /**
+     * Gets the chunk index within the region.
+     *
+     * @return chunk index (0-1023)
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Gets the codec the chunk was compressed with.
+     *
+     * @return codec
+     */
+    public ChunkCodec getCodec()
+    {
+        return codec;
+    }
+
+    /**
+     * Gets the compression settings used.
+     *
+     * @return compression settings
+     */
+    public CompressionPolicy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * Gets the size of the uncompressed data.
+     *
+     * @return size in bytes
+     */
+    public int getUncompressedSize()
+    {
+        return uncompressedSize;
+    }
+
+    /**
+     * Gets the size of the stored data.
+     *
+     * @return size in bytes
+     */
+    public int getCompressedSize()
+    {
+        return compressedSize;
+    }
+
+    /**
+     * Returns string representation of CodecSelection.
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString()
+    {
+        return "CodecSelection{" +
+                "index=" + index +
+                ", codec=" + codec.getId() +
+                ", level=" + policy.getLevel() +
+                ", uncompressedSize=" + uncompressedSize +
+                ", compressedSize=" + compressedSize +
+                '}';
+    }
+}
@@ -0,0 +1,187 @@
+package de.pauleff.jmcx.compression;
+
+import java.util.Objects;
+import java.util.zip.Deflater;
+
+/**
+ * Immutable set of compression settings applied when chunk data is compressed.
+ * Level and strategy apply to the deflate-based codecs (GZip and Zlib), codecs without such settings ignore them.
+ *
+ * @author Paul Ferlitz
+ */
+public final class CompressionPolicy
+{
+    /**
+     * zlib's default level (6) and strategy.
+     */
+    public static final CompressionPolicy DEFAULT = new CompressionPolicy(Deflater.DEFAULT_COMPRESSION, Strategy.DEFAULT, 0);
+
+    /**
+     * Level 1, for frequently rewritten regions.
+     */
+    public static final CompressionPolicy FASTEST = DEFAULT.withLevel(Deflater.BEST_SPEED);
+
+    /**
+     * Level 9, for archive copies.
+     */
+    public static final CompressionPolicy SMALLEST = DEFAULT.withLevel(Deflater.BEST_COMPRESSION);
+
+    private final int level;
+    private final Strategy strategy;
+    private final int bufferSize;
+
+    private CompressionPolicy(int level, Strategy strategy, int bufferSize)
+    {
+        this.level = level;
+        this.strategy = strategy;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Creates a policy with the given level and default strategy.
+     *
+     * @param level compression level 0-9, or -1 for zlib's default
+     * @return compression policy
+     * @throws IllegalArgumentException if level is out of range
+     */
+    public static CompressionPolicy of(int level)
+    {
+        return DEFAULT.withLevel(level);
+    }
+
+    /**
+     * Creates a copy with a different compression level.
+     *
+     * @param level compression level 0-9, or -1 for zlib's default
+     * @return compression policy
+     * @throws IllegalArgumentException if level is out of range
+     */
+    public CompressionPolicy withLevel(int level)
+    {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+        {
+            throw new IllegalArgumentException("Compression level must be between 0 and 9 (or -1 for default), got: " + level);
+        }
+        return new CompressionPolicy(level, strategy, bufferSize);
+    }
+
+    /**
+     * Creates a copy with a different deflate strategy.
+     *
+     * @param strategy deflate strategy
+     * @return compression policy
+     * @throws IllegalArgumentException if strategy is null
+     */
+    public CompressionPolicy withStrategy(Strategy strategy)
+    {
+        if (strategy == null)
+        {
+            throw new IllegalArgumentException("Strategy cannot be null");
+        }
+        return new CompressionPolicy(level, strategy, bufferSize);
+    }
+
+    /**
+     * Creates a copy with a different initial output buffer size.
+     * Sizing the buffer close to the typical compressed chunk avoids regrowing it.
+     *
+     * @param bufferSize initial output buffer size in bytes, or 0 to size it automatically
+     * @return compression policy
+     * @throws IllegalArgumentException if bufferSize is negative
+     */
+    public CompressionPolicy withBufferSize(int bufferSize)
+    {
+        if (bufferSize < 0)
+        {
+            throw new IllegalArgumentException("Buffer size cannot be negative, got: " + bufferSize);
+        }
+        return new CompressionPolicy(level, strategy, bufferSize);
+    }
+
+    /**
+     * Gets the compression level.
+     *
+     * @return level 0-9, or -1 for zlib's default
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Gets the deflate strategy.
+     *
+     * @return deflate strategy
+     */
+    public Strategy getStrategy()
+    {
+        return strategy;
+    }
+
+    /**
+     * Gets the initial output buffer size.
+     *
+     * @return buffer size in bytes, 0 if sized automatically
+     */
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    /**
+     * Checks equality of all settings.
+     *
+     * @param o other object
+     * @return true if all settings are equal
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof CompressionPolicy that)) return false;
+        return level == that.level && bufferSize == that.bufferSize && strategy == that.strategy;
+    }
+
+    /**
+     * Computes hash code over all settings.
+     *
+     * @return hash code
+     */
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(level, strategy, bufferSize);
+    }
+
+    /**
+     * Returns string representation of CompressionPolicy.
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString()
+    {
+        return "CompressionPolicy{" +
+                "level=" + level +
+                ", strategy=" + strategy +
+                ", bufferSize=" + bufferSize +
+                '}';
+    }
+
+    /**
+     * Deflate strategies, see {@link Deflater#setStrategy(int)}.
+     */
+    public enum Strategy
+    {
+        DEFAULT(Deflater.DEFAULT_STRATEGY),
+        FILTERED(Deflater.FILTERED),
+        HUFFMAN_ONLY(Deflater.HUFFMAN_ONLY);
+
+        final int deflaterStrategy;
+
+        Strategy(int deflaterStrategy)
+        {
+            this.deflaterStrategy = deflaterStrategy;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Stream deflating its input with a pooled Deflater, either zlib-wrapped or as GZip with header and trailer.
+ * Output is written to the target in blocks from the context's scratch buffer, so no full copy of the input is kept.
+ * Closing the stream finishes the compressed data and returns its context to the pool; the target is not closed.
+ *
+ * @author Paul Ferlitz
+ */
+final class DeflatingOutputStream extends OutputStream
+{
+    private static final int BLOCK_SIZE = 16 * 1024;
+
+    private final CodecContext context;
+    private final Deflater deflater;
+    private final CRC32 crc;
+    private final OutputStream out;
+    private final byte[] block;
+    private final byte[] single = new byte[1];
+    private long size;
+    private boolean closed;
+
+    /**
+     * Creates a stream compressing into a target.
+     *
+     * @param context borrowed context, owned by this stream from now on
+     * @param gzipHeader GZip header to write first, or null for zlib-wrapped data
+     * @param out target for the compressed data
+     * @param policy level and strategy to use
+     * @throws IOException if writing the header fails
+     */
+    DeflatingOutputStream(CodecContext context, byte[] gzipHeader, OutputStream out, CompressionPolicy policy) throws IOException
+    {
+        this.context = context;
+        this.deflater = context.deflater(gzipHeader != null);
+        this.deflater.setLevel(policy.getLevel());
+        this.deflater.setStrategy(policy.getStrategy().deflaterStrategy);
+        this.crc = gzipHeader != null ? context.crc() : null;
+        this.out = out;
+        this.block = context.buffer(BLOCK_SIZE);
+        if (gzipHeader != null)
+        {
+            out.write(gzipHeader);
+        }
+    }
+
+    /**
+     * Compresses a single byte.
+     *
+     * @param b byte to write
+     * @throws IOException if writing fails or the stream is closed
+     */
+    @Override
+    public void write(int b) throws IOException
+    {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    /**
+     * Compresses len bytes, writing compressed blocks to the target as they fill up.
+     *
+     * @param b source array
+     * @param off offset in source array
+     * @param len number of bytes to write
+     * @throws IOException if writing fails or the stream is closed
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0)
+        {
+            return;
+        }
+
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput())
+        {
+            drain();
+        }
+        if (crc != null)
+        {
+            crc.update(b, off, len);
+        }
+        size += len;
+    }
+
+    /**
+     * Finishes the compressed data, writes the GZip trailer if needed and returns the context to the pool.
+     * The target is not closed.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+
+        try
+        {
+            deflater.finish();
+            while (!deflater.finished())
+            {
+                drain();
+            }
+            if (crc != null)
+            {
+                out.write(ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt((int) crc.getValue())
+                        .putInt((int) size)
+                        .array());
+            }
+        } finally
+        {
+            context.release();
+        }
+    }
+
+    /**
+     * Deflates one block into the scratch buffer and writes it to the target.
+     *
+     * @throws IOException if writing fails
+     */
+    private void drain() throws IOException
+    {
+        int length = deflater.deflate(block, 0, block.length);
+        if (length > 0)
+        {
+            out.write(block, 0, length);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * GZip (compression type 1) codec backed by pooled raw Inflaters and Deflaters.
+ * The GZip header and trailer are handled here instead of going through GZIPInputStream.
+ *
+ * @author Paul Ferlitz
+ */
+public final class GZipCodec implements ChunkCodec
+{
+    private static final int HEADER_SIZE = 10;
+    private static final int TRAILER_SIZE = 8;
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    /**
+     * Header as written by GZIPOutputStream, keeping output byte-identical to earlier versions.
+     */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    /**
+     * Gets the compression type byte.
+     *
+     * @return 1
+     */
+    @Override
+    public byte getType()
+    {
+        return 1;
+    }
+
+    /**
+     * Gets the namespaced codec id.
+     *
+     * @return "minecraft:gzip"
+     */
+    @Override
+    public String getId()
+    {
+        return "minecraft:gzip";
+    }
+
+    /**
+     * Decompresses GZip data and verifies its trailer.
+     *
+     * @param data compressed data, its position is not modified
+     * @return decompressed data
+     * @throws IOException if the data is malformed, truncated or fails the CRC check
+     */
+    @Override
+    public byte[] decompress(ByteBuffer data) throws IOException
+    {
+        int headerSize = readHeader(data);
+        ByteBuffer body = data.slice(data.position() + headerSize, data.remaining() - headerSize);
+
+        CodecContext context = CodecContext.acquire();
+        try
+        {
+            int length = context.inflate(context.inflater(true), body);
+            int trailer = (int) context.inflater(true).getBytesRead();
+            if (body.remaining() - trailer < TRAILER_SIZE)
+            {
+                throw new EOFException("Unexpected end of ZLIB input stream");
+            }
+
+            ByteBuffer trailerBuffer = body.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            CRC32 crc = context.crc();
+            crc.update(context.ensureCapacity(length, length), 0, length);
+            if (trailerBuffer.getInt(trailer) != (int) crc.getValue() || trailerBuffer.getInt(trailer + 4) != length)
+            {
+                throw new ZipException("Corrupt GZIP trailer");
+            }
+            return context.result(length);
+        } finally
+        {
+            context.release();
+        }
+    }
+
+    /**
+     * Opens a stream decompressing GZip data on the fly.
+     * The trailer is not verified, since callers may stop reading early.
+     *
+     * @param data compressed data, its position is not modified
+     * @return stream of decompressed data, must be closed to return its Inflater to the pool
+     * @throws IOException if the GZip header is malformed
+     */
+    @Override
+    public InputStream openStream(ByteBuffer data) throws IOException
+    {
+        int headerSize = readHeader(data);
+        ByteBuffer body = data.slice(data.position() + headerSize, data.remaining() - headerSize);
+        return new InflatingInputStream(CodecContext.acquire(), true, body);
+    }
+
+    /**
+     * Compresses data with GZip.
+     *
+     * @param data uncompressed data
+     * @return compressed data
+     */
+    @Override
+    public byte[] compress(byte[] data)
+    {
+        return compress(data, CompressionPolicy.DEFAULT);
+    }
+
+    /**
+     * Compresses data with GZip using the given settings.
+     *
+     * @param data uncompressed data
+     * @param policy level, strategy and initial buffer size to use
+     * @return compressed data
+     */
+    @Override
+    public byte[] compress(byte[] data, CompressionPolicy policy)
+    {
+        CodecContext context = CodecContext.acquire();
+        try
+        {
+            int end = context.deflate(context.deflater(true), data, HEADER_SIZE, policy);
+            byte[] out = context.ensureCapacity(end, end + TRAILER_SIZE);
+            System.arraycopy(HEADER, 0, out, 0, HEADER_SIZE);
+
+            CRC32 crc = context.crc();
+            crc.update(data);
+            ByteBuffer trailer = ByteBuffer.wrap(out, end, TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            trailer.putInt((int) crc.getValue());
+            trailer.putInt(data.length);
+            return context.result(end + TRAILER_SIZE);
+        } finally
+        {
+            context.release();
+        }
+    }
+
+    /**
+     * Opens a stream compressing data with GZip into a target, using a pooled raw Deflater.
+     * Header and trailer are the same as written by {@link #compress(byte[], CompressionPolicy)}.
+     *
+     * @param out target for the compressed data
+     * @param policy level and strategy to use
+     * @return stream of uncompressed data, must be closed to finish the data and return its Deflater to the pool
+     * @throws IOException if writing the header fails
+     */
+    @Override
+    public OutputStream openCompressor(OutputStream out, CompressionPolicy policy) throws IOException
+    {
+        return new DeflatingOutputStream(CodecContext.acquire(), HEADER, out, policy);
+    }
+
+    /**
+     * Validates the GZip header and skips its optional fields.
+     *
+     * @param data compressed data, its position is not modified
+     * @return size of the header in bytes
+     * @throws IOException if the header is malformed or truncated
+     */
+    private static int readHeader(ByteBuffer data) throws IOException
+    {
+        int start = data.position();
+        int limit = data.limit();
+        if (limit - start < HEADER_SIZE)
+        {
+            throw new EOFException("Unexpected end of GZIP header");
+        }
+        if (data.get(start) != 0x1f || data.get(start + 1) != (byte) 0x8b)
+        {
+            throw new ZipException("Not in GZIP format");
+        }
+        if (data.get(start + 2) != 8)
+        {
+            throw new ZipException("Unsupported compression method");
+        }
+
+        int flags = data.get(start + 3) & 0xFF;
+        int position = start + HEADER_SIZE;
+        if ((flags & FEXTRA) != 0)
+        {
+            if (limit - position < 2)
+            {
+                throw new EOFException("Unexpected end of GZIP header");
+            }
+            position += 2 + ((data.get(position) & 0xFF) | (data.get(position + 1) & 0xFF) << 8);
+        }
+        if ((flags & FNAME) != 0)
+        {
+            position = skipZeroTerminated(data, position, limit);
+        }
+        if ((flags & FCOMMENT) != 0)
+        {
+            position = skipZeroTerminated(data, position, limit);
+        }
+        if ((flags & FHCRC) != 0)
+        {
+            position += 2;
+        }
+        if (position > limit)
+        {
+            throw new EOFException("Unexpected end of GZIP header");
+        }
+        return position - start;
+    }
+
+    /**
+     * Skips a zero-terminated header field.
+     *
+     * @param data compressed data
+     * @param position start of the field
+     * @param limit end of the data
+     * @return position after the terminating zero
+     * @throws EOFException if no terminator is found
+     */
+    private static int skipZeroTerminated(ByteBuffer data, int position, int limit) throws EOFException
+    {
+        while (position < limit)
+        {
+            if (data.get(position++) == 0)
+            {
+                return position;
+            }
+        }
+        throw new EOFException("Unexpected end of GZIP header");
+    }
+}
@@ -0,0 +1,118 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Stream inflating a ByteBuffer with a pooled Inflater.
+ * The compressed input is handed to the Inflater directly, without an intermediate copy.
+ * Closing the stream returns its context to the pool.
+ *
+ * @author Paul Ferlitz
+ */
+final class InflatingInputStream extends InputStream
+{
+    private final CodecContext context;
+    private final Inflater inflater;
+    private final byte[] single = new byte[1];
+    private boolean closed;
+
+    /**
+     * Creates a stream over compressed data.
+     *
+     * @param context borrowed context, owned by this stream from now on
+     * @param nowrap true for raw deflate data, false for zlib-wrapped data
+     * @param input compressed data, its position is not modified
+     */
+    InflatingInputStream(CodecContext context, boolean nowrap, ByteBuffer input)
+    {
+        this.context = context;
+        this.inflater = context.inflater(nowrap);
+        this.inflater.setInput(input.duplicate());
+    }
+
+    /**
+     * Reads the next decompressed byte.
+     *
+     * @return next byte or -1 at the end of the stream
+     * @throws IOException if the data is malformed or the stream is closed
+     */
+    @Override
+    public int read() throws IOException
+    {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    /**
+     * Reads up to len decompressed bytes.
+     *
+     * @param b destination array
+     * @param off offset in destination array
+     * @param len maximum number of bytes to read
+     * @return number of bytes read or -1 at the end of the stream
+     * @throws IOException if the data is malformed or the stream is closed
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0)
+        {
+            return 0;
+        }
+
+        try
+        {
+            if (inflater.finished())
+            {
+                return -1;
+            }
+
+            while (true)
+            {
+                int count = inflater.inflate(b, off, len);
+                if (count > 0)
+                {
+                    return count;
+                }
+                if (inflater.finished())
+                {
+                    return -1;
+                }
+                if (inflater.needsDictionary())
+                {
+                    throw new ZipException("Compressed data requires a preset dictionary");
+                }
+                if (inflater.needsInput())
+                {
+                    throw new EOFException("Unexpected end of ZLIB input stream");
+                }
+            }
+        } catch (DataFormatException e)
+        {
+            String message = e.getMessage();
+            throw new ZipException(message != null ? message : "Invalid ZLIB data format");
+        }
+    }
+
+    /**
+     * Closes the stream and returns its Inflater to the pool.
+     */
+    @Override
+    public void close()
+    {
+        if (!closed)
+        {
+            closed = true;
+            context.release();
+        }
+    }
+}
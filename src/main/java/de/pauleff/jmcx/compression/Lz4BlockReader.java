@@ -0,0 +1,219 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static de.pauleff.jmcx.compression.Lz4Codec.*;
+
+/**
+ * Cursor decoding the blocks of an LZ4 block stream one at a time.
+ *
+ * @author Paul Ferlitz
+ */
+final class Lz4BlockReader
+{
+    private final ByteBuffer input;
+    private int position;
+    private boolean finished;
+
+    /**
+     * Creates a reader over an LZ4 block stream.
+     *
+     * @param data compressed data, its position is not modified
+     */
+    Lz4BlockReader(ByteBuffer data)
+    {
+        this.input = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Decodes the next block into the context's scratch buffer.
+     *
+     * @param context context providing the scratch buffers
+     * @param outputOffset offset in the scratch buffer to decode to, earlier bytes are kept
+     * @return number of decoded bytes or -1 once the end block has been read
+     * @throws IOException if the stream is corrupted or truncated
+     */
+    int next(CodecContext context, int outputOffset) throws IOException
+    {
+        if (finished)
+        {
+            return -1;
+        }
+        if (input.limit() - position < HEADER_LENGTH)
+        {
+            throw new EOFException("Stream ended prematurely");
+        }
+        for (int i = 0; i < MAGIC.length; i++)
+        {
+            if (input.get(position + i) != MAGIC[i])
+            {
+                throw new IOException("Stream is corrupted");
+            }
+        }
+
+        int token = input.get(position + MAGIC.length) & 0xFF;
+        int method = token & 0xF0;
+        int compressionLevel = COMPRESSION_LEVEL_BASE + (token & 0x0F);
+        int compressedLength = input.getInt(position + MAGIC.length + 1);
+        int originalLength = input.getInt(position + MAGIC.length + 5);
+        int checksum = input.getInt(position + MAGIC.length + 9);
+        position += HEADER_LENGTH;
+
+        if (originalLength > 1 << compressionLevel || originalLength < 0 || compressedLength < 0
+                || (originalLength == 0) != (compressedLength == 0)
+                || (method == METHOD_RAW && originalLength != compressedLength)
+                || (method != METHOD_RAW && method != METHOD_LZ4))
+        {
+            throw new IOException("Stream is corrupted");
+        }
+        if (originalLength == 0)
+        {
+            if (checksum != 0)
+            {
+                throw new IOException("Stream is corrupted");
+            }
+            finished = true;
+            return -1;
+        }
+        if (compressedLength > input.limit() - position)
+        {
+            throw new EOFException("Stream ended prematurely");
+        }
+
+        byte[] output = context.ensureCapacity(outputOffset, outputOffset + originalLength);
+        if (method == METHOD_RAW)
+        {
+            input.get(position, output, outputOffset, originalLength);
+        } else
+        {
+            byte[] source;
+            int sourceOffset;
+            if (input.hasArray())
+            {
+                source = input.array();
+                sourceOffset = input.arrayOffset() + position;
+            } else
+            {
+                source = context.blockBuffer(compressedLength);
+                sourceOffset = 0;
+                input.get(position, source, 0, compressedLength);
+            }
+
+            int decoded = decompressBlock(source, sourceOffset, compressedLength, output, outputOffset, originalLength);
+            if (decoded != originalLength)
+            {
+                throw new IOException("Stream is corrupted");
+            }
+        }
+
+        if ((XXHash32.hash(output, outputOffset, originalLength, CHECKSUM_SEED) & CHECKSUM_MASK) != checksum)
+        {
+            throw new IOException("Stream is corrupted");
+        }
+        position += compressedLength;
+        return originalLength;
+    }
+
+    /**
+     * Decodes a single raw LZ4 block with full bounds checking.
+     *
+     * @param src compressed bytes
+     * @param srcOffset start of the block
+     * @param srcLength length of the block
+     * @param dst destination array
+     * @param dstOffset start of the output
+     * @param dstLength maximum number of bytes to produce
+     * @return number of decoded bytes
+     * @throws IOException if the block is malformed
+     */
+    private static int decompressBlock(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) throws IOException
+    {
+        int sp = srcOffset;
+        int srcEnd = srcOffset + srcLength;
+        int dp = dstOffset;
+        int dstEnd = dstOffset + dstLength;
+
+        while (true)
+        {
+            if (sp >= srcEnd)
+            {
+                throw new IOException("Malformed LZ4 block: missing token");
+            }
+            int token = src[sp++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == 15)
+            {
+                int b;
+                do
+                {
+                    if (sp >= srcEnd)
+                    {
+                        throw new IOException("Malformed LZ4 block: truncated literal length");
+                    }
+                    b = src[sp++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > srcEnd - sp || literalLength > dstEnd - dp)
+            {
+                throw new IOException("Malformed LZ4 block: literals out of bounds");
+            }
+            System.arraycopy(src, sp, dst, dp, literalLength);
+            sp += literalLength;
+            dp += literalLength;
+
+            if (sp == srcEnd)
+            {
+                return dp - dstOffset;
+            }
+
+            if (srcEnd - sp < 2)
+            {
+                throw new IOException("Malformed LZ4 block: truncated match offset");
+            }
+            int offset = (src[sp] & 0xFF) | (src[sp + 1] & 0xFF) << 8;
+            sp += 2;
+            if (offset == 0 || offset > dp - dstOffset)
+            {
+                throw new IOException("Malformed LZ4 block: invalid match offset " + offset);
+            }
+
+            int matchLength = token & 0x0F;
+            if (matchLength == 15)
+            {
+                int b;
+                do
+                {
+                    if (sp >= srcEnd)
+                    {
+                        throw new IOException("Malformed LZ4 block: truncated match length");
+                    }
+                    b = src[sp++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > dstEnd - dp)
+            {
+                throw new IOException("Malformed LZ4 block: match out of bounds");
+            }
+
+            int ref = dp - offset;
+            if (offset >= matchLength)
+            {
+                System.arraycopy(dst, ref, dst, dp, matchLength);
+                dp += matchLength;
+            } else
+            {
+                for (int i = 0; i < matchLength; i++)
+                {
+                    dst[dp++] = dst[ref++];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * LZ4 (compression type 4) codec using the block stream framing Minecraft writes.
+ * Each block of up to 64KiB is stored as "LZ4Block" magic, a token byte, little-endian compressed length,
+ * original length and XXHash32 checksum, followed by the block data. An empty block ends the stream.
+ *
+ * @author Paul Ferlitz
+ */
+public final class Lz4Codec implements ChunkCodec
+{
+    static final byte[] MAGIC = "LZ4Block".getBytes(StandardCharsets.US_ASCII);
+    static final int HEADER_LENGTH = MAGIC.length + 1 + 4 + 4 + 4;
+    static final int METHOD_RAW = 0x10;
+    static final int METHOD_LZ4 = 0x20;
+    static final int COMPRESSION_LEVEL_BASE = 10;
+    static final int CHECKSUM_SEED = 0x9747b28c;
+    static final int CHECKSUM_MASK = 0xFFFFFFF;
+    static final int MIN_MATCH = 4;
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int COMPRESSION_LEVEL = 32 - Integer.numberOfLeadingZeros(BLOCK_SIZE - 1) - COMPRESSION_LEVEL_BASE;
+    private static final int MF_LIMIT = 12;
+    private static final int LAST_LITERALS = 5;
+    private static final int MAX_DISTANCE = 65535;
+    private static final int HASH_LOG = 12;
+    private static final int SKIP_STRENGTH = 6;
+
+    /**
+     * Gets the compression type byte.
+     *
+     * @return 4
+     */
+    @Override
+    public byte getType()
+    {
+        return 4;
+    }
+
+    /**
+     * Gets the namespaced codec id.
+     *
+     * @return "minecraft:lz4"
+     */
+    @Override
+    public String getId()
+    {
+        return "minecraft:lz4";
+    }
+
+    /**
+     * Decompresses an LZ4 block stream and verifies its block checksums.
+     *
+     * @param data compressed data, its position is not modified
+     * @return decompressed data
+     * @throws IOException if the stream is corrupted or truncated
+     */
+    @Override
+    public byte[] decompress(ByteBuffer data) throws IOException
+    {
+        CodecContext context = CodecContext.acquire();
+        try
+        {
+            Lz4BlockReader reader = new Lz4BlockReader(data);
+            int length = 0;
+            int blockLength;
+            while ((blockLength = reader.next(context, length)) >= 0)
+            {
+                length += blockLength;
+            }
+            return context.result(length);
+        } finally
+        {
+            context.release();
+        }
+    }
+
+    /**
+     * Opens a stream decompressing an LZ4 block stream one block at a time.
+     *
+     * @param data compressed data, its position is not modified
+     * @return stream of decompressed data, should be closed to return its buffers to the pool
+     */
+    @Override
+    public InputStream openStream(ByteBuffer data)
+    {
+        return new Lz4InputStream(CodecContext.acquire(), data);
+    }
+
+    /**
+     * Compresses data into an LZ4 block stream.
+     * Blocks that do not shrink are stored raw.
+     *
+     * @param data uncompressed data
+     * @return compressed data
+     */
+    @Override
+    public byte[] compress(byte[] data)
+    {
+        CodecContext context = CodecContext.acquire();
+        try
+        {
+            int blocks = (data.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            int capacity = (blocks + 1) * HEADER_LENGTH + data.length + data.length / 255 + blocks * 16;
+            byte[] out = context.ensureCapacity(0, capacity);
+            int[] table = context.hashTable(1 << HASH_LOG);
+
+            int length = 0;
+            for (int offset = 0; offset < data.length; offset += BLOCK_SIZE)
+            {
+                int blockLength = Math.min(BLOCK_SIZE, data.length - offset);
+                int dataOffset = length + HEADER_LENGTH;
+
+                int method = METHOD_LZ4;
+                int compressedLength = compressBlock(data, offset, blockLength, out, dataOffset, table);
+                if (compressedLength >= blockLength)
+                {
+                    method = METHOD_RAW;
+                    compressedLength = blockLength;
+                    System.arraycopy(data, offset, out, dataOffset, blockLength);
+                }
+
+                int checksum = XXHash32.hash(data, offset, blockLength, CHECKSUM_SEED) & CHECKSUM_MASK;
+                writeHeader(out, length, method, compressedLength, blockLength, checksum);
+                length = dataOffset + compressedLength;
+            }
+
+            writeHeader(out, length, METHOD_RAW, 0, 0, 0);
+            return context.result(length + HEADER_LENGTH);
+        } finally
+        {
+            context.release();
+        }
+    }
+
+    /**
+     * Writes a block header.
+     *
+     * @param out destination array
+     * @param offset start of the header
+     * @param method METHOD_RAW or METHOD_LZ4
+     * @param compressedLength length of the stored block data
+     * @param originalLength length of the decoded block
+     * @param checksum masked XXHash32 of the decoded block
+     */
+    private static void writeHeader(byte[] out, int offset, int method, int compressedLength, int originalLength, int checksum)
+    {
+        System.arraycopy(MAGIC, 0, out, offset, MAGIC.length);
+        out[offset + MAGIC.length] = (byte) (method | COMPRESSION_LEVEL);
+        writeIntLE(out, offset + MAGIC.length + 1, compressedLength);
+        writeIntLE(out, offset + MAGIC.length + 5, originalLength);
+        writeIntLE(out, offset + MAGIC.length + 9, checksum);
+    }
+
+    /**
+     * Compresses a single raw LZ4 block with a greedy hash-table match finder.
+     * The destination must hold at least srcLength + srcLength / 255 + 16 bytes.
+     *
+     * @param src uncompressed bytes
+     * @param srcOffset start of the block
+     * @param srcLength length of the block
+     * @param dst destination array
+     * @param dstOffset start of the output
+     * @param table match table
+     * @return number of compressed bytes
+     */
+    private static int compressBlock(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int[] table)
+    {
+        int srcEnd = srcOffset + srcLength;
+        int dp = dstOffset;
+        int anchor = srcOffset;
+
+        if (srcLength > MF_LIMIT)
+        {
+            Arrays.fill(table, srcOffset);
+            int mfLimit = srcEnd - MF_LIMIT;
+            int matchLimit = srcEnd - LAST_LITERALS;
+            int sp = srcOffset + 1;
+
+            search:
+            while (true)
+            {
+                int ref;
+                int step = 1;
+                int attempts = 1 << SKIP_STRENGTH;
+                while (true)
+                {
+                    if (sp > mfLimit)
+                    {
+                        break search;
+                    }
+                    int value = readInt(src, sp);
+                    int hash = hash(value);
+                    ref = table[hash];
+                    table[hash] = sp;
+                    if (sp - ref <= MAX_DISTANCE && readInt(src, ref) == value)
+                    {
+                        break;
+                    }
+                    sp += step;
+                    step = attempts++ >>> SKIP_STRENGTH;
+                }
+
+                while (sp > anchor && ref > srcOffset && src[sp - 1] == src[ref - 1])
+                {
+                    sp--;
+                    ref--;
+                }
+
+                int matchLength = MIN_MATCH;
+                while (sp + matchLength < matchLimit && src[sp + matchLength] == src[ref + matchLength])
+                {
+                    matchLength++;
+                }
+
+                int literalLength = sp - anchor;
+                int tokenPosition = dp++;
+                dp = writeLength(dst, dp, literalLength);
+                System.arraycopy(src, anchor, dst, dp, literalLength);
+                dp += literalLength;
+
+                int offset = sp - ref;
+                dst[dp++] = (byte) offset;
+                dst[dp++] = (byte) (offset >>> 8);
+                dp = writeLength(dst, dp, matchLength - MIN_MATCH);
+                dst[tokenPosition] = (byte) (Math.min(literalLength, 15) << 4 | Math.min(matchLength - MIN_MATCH, 15));
+
+                sp += matchLength;
+                anchor = sp;
+                if (sp > mfLimit)
+                {
+                    break;
+                }
+                table[hash(readInt(src, sp - 2))] = sp - 2;
+            }
+        }
+
+        int literalLength = srcEnd - anchor;
+        dst[dp++] = (byte) (Math.min(literalLength, 15) << 4);
+        dp = writeLength(dst, dp, literalLength);
+        System.arraycopy(src, anchor, dst, dp, literalLength);
+        return dp + literalLength - dstOffset;
+    }
+
+    /**
+     * Writes the extension bytes of a literal or match length whose token nibble is saturated.
+     *
+     * @param dst destination array
+     * @param dp write position
+     * @param length full length value
+     * @return write position after the extension bytes
+     */
+    private static int writeLength(byte[] dst, int dp, int length)
+    {
+        if (length >= 15)
+        {
+            int remaining = length - 15;
+            while (remaining >= 255)
+            {
+                dst[dp++] = (byte) 255;
+                remaining -= 255;
+            }
+            dst[dp++] = (byte) remaining;
+        }
+        return dp;
+    }
+
+    /**
+     * Hashes four bytes into a match table slot.
+     *
+     * @param value four bytes read as an integer
+     * @return table index
+     */
+    private static int hash(int value)
+    {
+        return (value * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    /**
+     * Reads four bytes as a little-endian integer.
+     *
+     * @param data source bytes
+     * @param offset start of the integer
+     * @return integer value
+     */
+    private static int readInt(byte[] data, int offset)
+    {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * Writes an integer in little-endian order.
+     *
+     * @param out destination array
+     * @param offset start of the integer
+     * @param value integer value
+     */
+    private static void writeIntLE(byte[] out, int offset, int value)
+    {
+        out[offset] = (byte) value;
+        out[offset + 1] = (byte) (value >>> 8);
+        out[offset + 2] = (byte) (value >>> 16);
+        out[offset + 3] = (byte) (value >>> 24);
+    }
+}
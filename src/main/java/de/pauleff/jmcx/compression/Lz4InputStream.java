@@ -0,0 +1,131 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Stream decoding an LZ4 block stream one block at a time.
+ * Closing the stream returns its context to the pool.
+ *
+ * @author Paul Ferlitz
+ */
+final class Lz4InputStream extends InputStream
+{
+    private final CodecContext context;
+    private final Lz4BlockReader reader;
+    private int blockPosition;
+    private int blockLength;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Creates a stream over an LZ4 block stream.
+     *
+     * @param context borrowed context, owned by this stream from now on
+     * @param data compressed data, its position is not modified
+     */
+    Lz4InputStream(CodecContext context, ByteBuffer data)
+    {
+        this.context = context;
+        this.reader = new Lz4BlockReader(data);
+    }
+
+    /**
+     * Reads the next decompressed byte.
+     *
+     * @return next byte or -1 at the end of the stream
+     * @throws IOException if the stream is corrupted or closed
+     */
+    @Override
+    public int read() throws IOException
+    {
+        if (!fill())
+        {
+            return -1;
+        }
+        return context.buffer(blockLength)[blockPosition++] & 0xFF;
+    }
+
+    /**
+     * Reads up to len decompressed bytes.
+     *
+     * @param b destination array
+     * @param off offset in destination array
+     * @param len maximum number of bytes to read
+     * @return number of bytes read or -1 at the end of the stream
+     * @throws IOException if the stream is corrupted or closed
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        if (!fill())
+        {
+            return -1;
+        }
+
+        int count = Math.min(len, blockLength - blockPosition);
+        System.arraycopy(context.buffer(blockLength), blockPosition, b, off, count);
+        blockPosition += count;
+        return count;
+    }
+
+    /**
+     * Gets the number of decoded bytes left in the current block.
+     *
+     * @return buffered bytes
+     */
+    @Override
+    public int available()
+    {
+        return closed ? 0 : blockLength - blockPosition;
+    }
+
+    /**
+     * Closes the stream and returns its context to the pool.
+     */
+    @Override
+    public void close()
+    {
+        if (!closed)
+        {
+            closed = true;
+            context.release();
+        }
+    }
+
+    /**
+     * Decodes the next block once the current one is used up.
+     *
+     * @return true if decoded bytes are available
+     * @throws IOException if the stream is corrupted or closed
+     */
+    private boolean fill() throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Stream closed");
+        }
+        while (blockPosition == blockLength)
+        {
+            if (finished)
+            {
+                return false;
+            }
+
+            int length = reader.next(context, 0);
+            if (length < 0)
+            {
+                finished = true;
+                return false;
+            }
+            blockPosition = 0;
+            blockLength = length;
+        }
+        return true;
+    }
+}
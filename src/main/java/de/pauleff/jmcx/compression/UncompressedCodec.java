@@ -0,0 +1,103 @@
+package de.pauleff.jmcx.compression;
+
+import de.pauleff.jmcx.util.ByteBufferInputStream;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for uncompressed chunk data (compression type 3).
+ *
+ * @author Paul Ferlitz
+ */
+public final class UncompressedCodec implements ChunkCodec
+{
+    /**
+     * Gets the compression type byte.
+     *
+     * @return 3
+     */
+    @Override
+    public byte getType()
+    {
+        return 3;
+    }
+
+    /**
+     * Gets the namespaced codec id.
+     *
+     * @return "minecraft:none"
+     */
+    @Override
+    public String getId()
+    {
+        return "minecraft:none";
+    }
+
+    /**
+     * Copies the data.
+     *
+     * @param data stored data, its position is not modified
+     * @return copy of the data
+     */
+    @Override
+    public byte[] decompress(ByteBuffer data)
+    {
+        byte[] copy = new byte[data.remaining()];
+        data.get(data.position(), copy);
+        return copy;
+    }
+
+    /**
+     * Opens a stream over the data without copying it.
+     *
+     * @param data stored data, its position is not modified
+     * @return stream of the data
+     */
+    @Override
+    public InputStream openStream(ByteBuffer data)
+    {
+        return new ByteBufferInputStream(data);
+    }
+
+    /**
+     * Returns the data unchanged.
+     *
+     * @param data uncompressed data
+     * @return the same array
+     */
+    @Override
+    public byte[] compress(byte[] data)
+    {
+        return data;
+    }
+
+    /**
+     * Opens a stream passing data through to a target unchanged.
+     *
+     * @param out target for the data
+     * @param policy ignored
+     * @return stream writing directly to the target, closing it does not close the target
+     */
+    @Override
+    public OutputStream openCompressor(OutputStream out, CompressionPolicy policy)
+    {
+        return new FilterOutputStream(out)
+        {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException
+            {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException
+            {
+                flush();
+            }
+        };
+    }
+}
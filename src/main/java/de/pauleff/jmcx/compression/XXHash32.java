@@ -0,0 +1,103 @@
+package de.pauleff.jmcx.compression;
+
+/**
+ * XXHash32 implementation used for LZ4 block checksums.
+ *
+ * @author Paul Ferlitz
+ */
+final class XXHash32
+{
+    private static final int PRIME1 = 0x9E3779B1;
+    private static final int PRIME2 = 0x85EBCA77;
+    private static final int PRIME3 = 0xC2B2AE3D;
+    private static final int PRIME4 = 0x27D4EB2F;
+    private static final int PRIME5 = 0x165667B1;
+
+    private XXHash32()
+    {
+    }
+
+    /**
+     * Hashes a range of bytes.
+     *
+     * @param data bytes to hash
+     * @param offset start of the range
+     * @param length length of the range
+     * @param seed hash seed
+     * @return 32-bit hash
+     */
+    static int hash(byte[] data, int offset, int length, int seed)
+    {
+        int end = offset + length;
+        int h32;
+
+        if (length >= 16)
+        {
+            int limit = end - 16;
+            int v1 = seed + PRIME1 + PRIME2;
+            int v2 = seed + PRIME2;
+            int v3 = seed;
+            int v4 = seed - PRIME1;
+            do
+            {
+                v1 = round(v1, readIntLE(data, offset));
+                v2 = round(v2, readIntLE(data, offset + 4));
+                v3 = round(v3, readIntLE(data, offset + 8));
+                v4 = round(v4, readIntLE(data, offset + 12));
+                offset += 16;
+            } while (offset <= limit);
+            h32 = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+        } else
+        {
+            h32 = seed + PRIME5;
+        }
+
+        h32 += length;
+
+        while (offset <= end - 4)
+        {
+            h32 += readIntLE(data, offset) * PRIME3;
+            h32 = Integer.rotateLeft(h32, 17) * PRIME4;
+            offset += 4;
+        }
+        while (offset < end)
+        {
+            h32 += (data[offset] & 0xFF) * PRIME5;
+            h32 = Integer.rotateLeft(h32, 11) * PRIME1;
+            offset++;
+        }
+
+        h32 ^= h32 >>> 15;
+        h32 *= PRIME2;
+        h32 ^= h32 >>> 13;
+        h32 *= PRIME3;
+        h32 ^= h32 >>> 16;
+        return h32;
+    }
+
+    /**
+     * Mixes one lane of input into an accumulator.
+     *
+     * @param accumulator lane accumulator
+     * @param input next four input bytes
+     * @return updated accumulator
+     */
+    private static int round(int accumulator, int input)
+    {
+        accumulator += input * PRIME2;
+        accumulator = Integer.rotateLeft(accumulator, 13);
+        return accumulator * PRIME1;
+    }
+
+    /**
+     * Reads a little-endian integer.
+     *
+     * @param data source bytes
+     * @param offset start of the integer
+     * @return integer value
+     */
+    private static int readIntLE(byte[] data, int offset)
+    {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8 | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+    }
+}
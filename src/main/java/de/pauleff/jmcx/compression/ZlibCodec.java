@@ -0,0 +1,116 @@
+package de.pauleff.jmcx.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Zlib (compression type 2) codec backed by pooled Inflaters and Deflaters.
+ *
+ * @author Paul Ferlitz
+ */
+public final class ZlibCodec implements ChunkCodec
+{
+    /**
+     * Gets the compression type byte.
+     *
+     * @return 2
+     */
+    @Override
+    public byte getType()
+    {
+        return 2;
+    }
+
+    /**
+     * Gets the namespaced codec id.
+     *
+     * @return "minecraft:deflate"
+     */
+    @Override
+    public String getId()
+    {
+        return "minecraft:deflate";
+    }
+
+    /**
+     * Decompresses zlib data.
+     *
+     * @param data compressed data, its position is not modified
+     * @return decompressed data
+     * @throws IOException if the data is malformed or truncated
+     */
+    @Override
+    public byte[] decompress(ByteBuffer data) throws IOException
+    {
+        CodecContext context = CodecContext.acquire();
+        try
+        {
+            int length = context.inflate(context.inflater(false), data);
+            return context.result(length);
+        } finally
+        {
+            context.release();
+        }
+    }
+
+    /**
+     * Opens a stream decompressing zlib data on the fly.
+     *
+     * @param data compressed data, its position is not modified
+     * @return stream of decompressed data, must be closed to return its Inflater to the pool
+     */
+    @Override
+    public InputStream openStream(ByteBuffer data)
+    {
+        return new InflatingInputStream(CodecContext.acquire(), false, data);
+    }
+
+    /**
+     * Compresses data with zlib.
+     *
+     * @param data uncompressed data
+     * @return compressed data
+     */
+    @Override
+    public byte[] compress(byte[] data)
+    {
+        return compress(data, CompressionPolicy.DEFAULT);
+    }
+
+    /**
+     * Compresses data with zlib using the given settings.
+     *
+     * @param data uncompressed data
+     * @param policy level, strategy and initial buffer size to use
+     * @return compressed data
+     */
+    @Override
+    public byte[] compress(byte[] data, CompressionPolicy policy)
+    {
+        CodecContext context = CodecContext.acquire();
+        try
+        {
+            int length = context.deflate(context.deflater(false), data, 0, policy);
+            return context.result(length);
+        } finally
+        {
+            context.release();
+        }
+    }
+
+    /**
+     * Opens a stream compressing data with zlib into a target, using a pooled Deflater.
+     *
+     * @param out target for the compressed data
+     * @param policy level and strategy to use
+     * @return stream of uncompressed data, must be closed to finish the data and return its Deflater to the pool
+     * @throws IOException if the stream cannot be opened
+     */
+    @Override
+    public OutputStream openCompressor(OutputStream out, CompressionPolicy policy) throws IOException
+    {
+        return new DeflatingOutputStream(CodecContext.acquire(), null, out, policy);
+    }
+}
@@ -1,6 +1,9 @@
 package de.pauleff.jmcx.core;
 
 import de.pauleff.jmcx.api.IChunk;
+import de.pauleff.jmcx.compression.ChunkCodec;
+import de.pauleff.jmcx.compression.CompressionPolicy;
+import de.pauleff.jmcx.compression.ZlibCodec;
 import de.pauleff.jmcx.util.AnvilConstants;
 import de.pauleff.jmcx.util.AnvilUtils;
 import de.pauleff.jnbt.api.ICompoundTag;
@@ -8,26 +11,40 @@ import de.pauleff.jnbt.formats.binary.NBTReader;
 import de.pauleff.jnbt.formats.binary.NBTWriter;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import static de.pauleff.jmcx.util.AnvilConstants.BLOCKS_PER_CHUNK_SIDE;
 import static de.pauleff.jmcx.util.AnvilConstants.CHUNKS_PER_REGION_SIDE;
 
 /**
  * Implementation of {@link IChunk} representing a chunk in the Anvil file format.
+ * Chunks may be shared with a background writer such as {@link de.pauleff.jmcx.formats.anvil.AsyncAnvilWriter},
+ * all accessors of the chunk data are synchronized. {@link #setNBTData(ICompoundTag)} serializes the tag right away,
+ * so a writer sees the data as of the last call; changes to the tag afterwards are only written once it is set again.
  *
  * @author Paul Ferlitz
  */
 public class Chunk implements IChunk
 {
+    private static final ChunkCodec DEFAULT_CODEC = new ZlibCodec();
+
     private final int x;
     private final int z;
-    private final int dataVersion;
+    private int dataVersion;
+    private boolean dataVersionLoaded;
     private final int index;
     private final Location location;
     private final int timestamp;
-    private final ChunkPayload payload;
+    private ChunkPayload payload;
+    private ChunkDataSource payloadSource;
     private ICompoundTag cachedNBTData;
     private boolean nbtLoaded = false;
+    private boolean modified = false;
+    private long modificationCount;
+    private byte[] pendingData;
+    private int pendingLength;
+    private CompressionPolicy pendingPolicy;
+    private ChunkOrigin origin;
 
     /**
      * Constructs a Chunk object.
@@ -39,11 +56,39 @@ public class Chunk implements IChunk
      * @throws IOException if payload processing fails
      */
     public Chunk(int index, Location location, int timestamp, byte[] payload) throws IOException
+    {
+        this(index, location, timestamp, ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Constructs a Chunk object from a buffer, e.g. a slice of a memory-mapped region file.
+     *
+     * @param index chunk index in region
+     * @param location {@link Location} in region file
+     * @param timestamp chunk timestamp
+     * @param payload buffer holding the chunk payload from its position to its limit
+     * @throws IOException if payload processing fails
+     */
+    public Chunk(int index, Location location, int timestamp, ByteBuffer payload) throws IOException
+    {
+        this(index, location, timestamp, new ChunkPayload(payload));
+    }
+
+    /**
+     * Constructs a Chunk object from an already parsed payload, scanning its coordinates from the NBT data.
+     *
+     * @param index chunk index in region
+     * @param location {@link Location} in region file
+     * @param timestamp chunk timestamp
+     * @param payload {@link ChunkPayload} of the chunk
+     * @throws IOException if payload processing fails
+     */
+    public Chunk(int index, Location location, int timestamp, ChunkPayload payload) throws IOException
     {
         this.index = index;
         this.location = location;
         this.timestamp = timestamp;
-        this.payload = new ChunkPayload(payload);
+        this.payload = payload;
 
         if (this.payload.getLength() > 0)
         {
@@ -57,10 +102,180 @@ public class Chunk implements IChunk
             this.z = 0;
             this.dataVersion = 0;
         }
+        this.dataVersionLoaded = true;
     }
 
     /**
-     * Parses coordinates and data version from NBT data without caching the result.
+     * Constructs a Chunk object belonging to a known region.
+     * Coordinates are derived from the region coordinates and index, only the data version is
+     * scanned from the payload, stopping as soon as the tag is found.
+     *
+     * @param regionX region x-coordinate
+     * @param regionZ region z-coordinate
+     * @param index chunk index in region
+     * @param location {@link Location} in region file
+     * @param timestamp chunk timestamp
+     * @param payload buffer holding the chunk payload from its position to its limit
+     * @throws IOException if payload processing fails
+     */
+    public Chunk(int regionX, int regionZ, int index, Location location, int timestamp, ByteBuffer payload) throws IOException
+    {
+        this(regionX, regionZ, index, location, timestamp, new ChunkPayload(payload));
+    }
+
+    /**
+     * Constructs a Chunk object belonging to a known region from an already parsed payload,
+     * e.g. one loaded from an external {@code .mcc} file.
+     * Coordinates are derived from the region coordinates and index, only the data version is scanned from the payload.
+     *
+     * @param regionX region x-coordinate
+     * @param regionZ region z-coordinate
+     * @param index chunk index in region
+     * @param location {@link Location} in region file
+     * @param timestamp chunk timestamp
+     * @param payload {@link ChunkPayload} of the chunk
+     * @throws IOException if payload processing fails
+     */
+    public Chunk(int regionX, int regionZ, int index, Location location, int timestamp, ChunkPayload payload) throws IOException
+    {
+        int[] coordinates = AnvilUtils.calculateChunkCoordinates(regionX, regionZ, index);
+        this.x = coordinates[0];
+        this.z = coordinates[1];
+        this.index = index;
+        this.location = location;
+        this.timestamp = timestamp;
+        this.payload = payload;
+        this.dataVersion = this.payload.getLength() > 0 ? scanDataVersion() : 0;
+        this.dataVersionLoaded = true;
+    }
+
+    /**
+     * Constructs a Chunk object whose coordinates and data version are already known, e.g. a copy of another chunk.
+     * Nothing is scanned from the payload.
+     *
+     * @param chunkX chunk x-coordinate
+     * @param chunkZ chunk z-coordinate
+     * @param dataVersion data version stored in the payload
+     * @param index chunk index in region
+     * @param location {@link Location} in region file
+     * @param timestamp chunk timestamp
+     * @param payload {@link ChunkPayload} of the chunk
+     */
+    public Chunk(int chunkX, int chunkZ, int dataVersion, int index, Location location, int timestamp, ChunkPayload payload)
+    {
+        this.x = chunkX;
+        this.z = chunkZ;
+        this.dataVersion = dataVersion;
+        this.dataVersionLoaded = true;
+        this.index = index;
+        this.location = location;
+        this.timestamp = timestamp;
+        this.payload = payload;
+    }
+
+    /**
+     * Constructs a lazily materialized Chunk.
+     * Coordinates are derived from the region coordinates and index. The payload is only read from
+     * {@code payloadSource} when first needed. The data version is scanned on first {@link #getDataVersion()},
+     * full decompression and parsing happen on first {@link #getNBTData()}.
+     *
+     * @param regionX region x-coordinate
+     * @param regionZ region z-coordinate
+     * @param index chunk index in region
+     * @param location {@link Location} in region file
+     * @param timestamp chunk timestamp
+     * @param payloadSource {@link ChunkDataSource} supplying the payload on first access
+     */
+    public Chunk(int regionX, int regionZ, int index, Location location, int timestamp, ChunkDataSource payloadSource)
+    {
+        int[] coordinates = AnvilUtils.calculateChunkCoordinates(regionX, regionZ, index);
+        this.x = coordinates[0];
+        this.z = coordinates[1];
+        this.index = index;
+        this.location = location;
+        this.timestamp = timestamp;
+        this.payloadSource = payloadSource;
+        this.dataVersionLoaded = false;
+    }
+
+    /**
+     * Gets the payload, compressing data set by {@link #setNBTData(ICompoundTag)} that has not been compressed yet
+     * or reading it from the payload source if this chunk is lazily materialized.
+     * Pending data keeps the codec of a loaded payload; for a lazy chunk whose sectors were never read it is
+     * compressed with Zlib, so the replaced data is not read just to look up its codec.
+     *
+     * @return loaded {@link ChunkPayload}
+     * @throws IOException if reading, validating or compressing the payload fails
+     */
+    private synchronized ChunkPayload loadPayload() throws IOException
+    {
+        if (pendingData != null)
+        {
+            payload = payload != null
+                    ? payload.withData(pendingData, pendingLength, pendingPolicy)
+                    : ChunkPayload.encode(pendingData, pendingLength, DEFAULT_CODEC, pendingPolicy);
+            pendingData = null;
+            pendingPolicy = null;
+        }
+        if (payload == null)
+        {
+            payload = payloadSource.loadPayload();
+            payloadSource = null;
+        }
+        return payload;
+    }
+
+    /**
+     * Loads the payload and moves it off a memory-mapped region file, so it stays valid when that file is overwritten in place.
+     *
+     * @throws IOException if reading, validating or compressing the payload fails
+     */
+    public synchronized void detachPayload() throws IOException
+    {
+        payload = loadPayload().toHeap();
+    }
+
+    /**
+     * Checks if data set by {@link #setNBTData(ICompoundTag)} still waits to be compressed.
+     * Compression is deferred until the payload is first needed, so writers can compress many chunks in parallel.
+     *
+     * @return true if compression is pending
+     */
+    public synchronized boolean isCompressionPending()
+    {
+        return pendingData != null;
+    }
+
+    /**
+     * Gets the payload for accessors that cannot throw checked exceptions.
+     *
+     * @return loaded {@link ChunkPayload}
+     * @throws UncheckedIOException if reading or validating the payload fails
+     */
+    private ChunkPayload loadPayloadUnchecked()
+    {
+        try
+        {
+            return loadPayload();
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(
+                    String.format("Failed to load payload of chunk %d: %s", index, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Checks if the payload has been read into memory.
+     *
+     * @return true if the payload is loaded
+     */
+    public synchronized boolean isPayloadLoaded()
+    {
+        return payload != null;
+    }
+
+    /**
+     * Scans coordinates and data version from NBT data without building the tag tree.
      * Handles different chunk types: regular chunks (xPos/zPos), entities (Position), and POI (pos).
      *
      * @return {@link CoordinateData} containing x, z coordinates and data version
@@ -68,89 +283,116 @@ public class Chunk implements IChunk
      */
     private CoordinateData parseCoordinatesAndVersion() throws IOException
     {
-        try (DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(this.payload.getDecompressedData()));
-             NBTReader reader = new NBTReader(inputStream))
-        {
-            ICompoundTag root = reader.read();
+        ChunkTagScanner.ScanResult result = scanTags(true);
 
-            int x, z, dataVersion;
+        int x, z;
 
-            if (root.hasTag("Position"))
+        if (result.position != null)
+        {
+            if (result.position.length >= 2)
             {
-                int[] coords = root.getIntArray("Position");
-                if (coords.length >= 2)
-                {
-                    x = coords[0];
-                    z = coords[1];
-                } else
-                {
-                    throw new IOException("Invalid entity file format: Position array too short");
-                }
+                x = result.position[0];
+                z = result.position[1];
+            } else
+            {
+                throw new IOException("Invalid entity file format: Position array too short");
             }
-            else if (root.hasTag("pos"))
+        }
+        else if (result.pos != null)
+        {
+            if (result.pos.length >= 3)
             {
-                int[] coords = root.getIntArray("pos");
-                if (coords.length >= 3)
-                {
-                    x = coords[0];
-                    z = coords[2];
-                } else
-                {
-                    throw new IOException("Invalid POI file format: pos array too short");
-                }
+                x = result.pos[0];
+                z = result.pos[2];
             } else
             {
-                if (root.hasTag("xPos") && root.hasTag("zPos"))
-                {
-                    x = root.getInt("xPos");
-                    z = root.getInt("zPos");
-                } else
-                {
-                    throw new IOException("Invalid chunk format: missing xPos/zPos tags");
-                }
+                throw new IOException("Invalid POI file format: pos array too short");
             }
-
-            if (root.hasTag("DataVersion"))
+        } else
+        {
+            if (result.xPos != null && result.zPos != null)
             {
-                dataVersion = root.getInt("DataVersion");
+                x = result.xPos;
+                z = result.zPos;
             } else
             {
-                throw new IOException("Invalid chunk format: missing DataVersion tag");
+                throw new IOException("Invalid chunk format: missing xPos/zPos tags");
             }
+        }
+
+        return new CoordinateData(x, z, result.dataVersion);
+    }
+
+    /**
+     * Scans the data version from NBT data, decompressing only until the tag is found.
+     *
+     * @return data version
+     * @throws IOException if NBT data is malformed or missing the DataVersion tag
+     */
+    private int scanDataVersion() throws IOException
+    {
+        return scanTags(false).dataVersion;
+    }
 
-            return new CoordinateData(x, z, dataVersion);
+    /**
+     * Runs {@link ChunkTagScanner} over the decompressed payload.
+     *
+     * @param coordinatesRequired whether position tags must be found as well
+     * @return scan result with a non-null data version
+     * @throws IOException if NBT data is malformed or missing the DataVersion tag
+     */
+    private ChunkTagScanner.ScanResult scanTags(boolean coordinatesRequired) throws IOException
+    {
+        try (InputStream inputStream = loadPayload().getDecompressedStream())
+        {
+            ChunkTagScanner.ScanResult result = ChunkTagScanner.scan(inputStream, coordinatesRequired);
+            if (result.dataVersion == null)
+            {
+                throw new IOException("Invalid chunk format: missing DataVersion tag");
+            }
+            return result;
         }
     }
 
     /**
-     * Sets new chunk data from raw NBT bytes.
+     * Sets new chunk data from raw NBT bytes and marks the chunk as modified.
+     * Compression is deferred to the first payload access. The payload is then replaced rather than changed in place,
+     * as it may be shared with a copied chunk. The payload source of a lazy chunk is dropped, its old data is never read.
      *
-     * @param payload new chunk data as NBT bytes
-     * @throws IOException if processing payload fails
+     * @param payload new chunk data as NBT bytes, not copied
+     * @param length number of bytes to use from the start of payload
+     * @param policy compression settings
      */
-    private void setChunkData(byte[] payload) throws IOException
+    private synchronized void setChunkData(byte[] payload, int length, CompressionPolicy policy)
     {
-        this.payload.compressAndSetData(payload);
+        this.pendingData = payload;
+        this.pendingLength = length;
+        this.pendingPolicy = policy;
+        this.payloadSource = null;
+        this.modified = true;
+        this.modificationCount++;
     }
 
     /**
      * Gets NBT root compound tag with lazy loading.
+     * Changes to the returned tag are not part of the chunk data until it is passed to {@link #setNBTData(ICompoundTag)}.
      *
      * @return {@link ICompoundTag} containing chunk data or null if empty
      * @throws IOException if reading chunk data fails
      */
-    public ICompoundTag getNBTData() throws IOException
+    public synchronized ICompoundTag getNBTData() throws IOException
     {
-        if (this.payload.getLength() == 0)
+        if (nbtLoaded)
         {
-            return null;
+            return cachedNBTData;
         }
 
-        if (!nbtLoaded)
+        if (loadPayload().getLength() == 0)
         {
-            loadNBTData();
+            return null;
         }
 
+        loadNBTData();
         return cachedNBTData;
     }
 
@@ -162,14 +404,32 @@ public class Chunk implements IChunk
      */
     public void setNBTData(ICompoundTag nbtData) throws IOException
     {
-        ByteArrayOutputStream byteOutput = new ByteArrayOutputStream();
+        setNBTData(nbtData, CompressionPolicy.DEFAULT);
+    }
+
+    /**
+     * Sets new chunk data from NBT compound tag, compressed with the given settings.
+     * Only the NBT data is serialized here, compression is deferred until the payload is needed or the chunk is written.
+     *
+     * @param nbtData {@link ICompoundTag} containing chunk data
+     * @param policy compression settings, e.g. {@link CompressionPolicy#FASTEST} for frequent edits
+     * @throws IOException if writing NBT data fails
+     * @throws IllegalArgumentException if policy is null
+     */
+    public synchronized void setNBTData(ICompoundTag nbtData, CompressionPolicy policy) throws IOException
+    {
+        if (policy == null)
+        {
+            throw new IllegalArgumentException("Compression policy cannot be null");
+        }
+
+        NBTBuffer byteOutput = new NBTBuffer();
         try (DataOutputStream dos = new DataOutputStream(byteOutput);
              NBTWriter writer = new NBTWriter(dos))
         {
             writer.write(nbtData);
         }
-        byte[] nbtBytes = byteOutput.toByteArray();
-        setChunkData(nbtBytes);
+        setChunkData(byteOutput.getBuffer(), byteOutput.size(), policy);
 
         cachedNBTData = nbtData;
         nbtLoaded = true;
@@ -181,9 +441,9 @@ public class Chunk implements IChunk
      *
      * @throws IOException if reading or parsing NBT data fails
      */
-    private void loadNBTData() throws IOException
+    private synchronized void loadNBTData() throws IOException
     {
-        try (DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(this.payload.getDecompressedData()));
+        try (DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(loadPayload().getDecompressedData()));
              NBTReader reader = new NBTReader(inputStream))
         {
             cachedNBTData = reader.read();
@@ -196,11 +456,72 @@ public class Chunk implements IChunk
      *
      * @return true if NBT data loaded
      */
-    public boolean isNBTLoaded()
+    public synchronized boolean isNBTLoaded()
     {
         return nbtLoaded;
     }
 
+    /**
+     * Checks if the chunk data has been replaced since the chunk was read or last written.
+     *
+     * @return true if modified
+     */
+    public synchronized boolean isModified()
+    {
+        return modified;
+    }
+
+    /**
+     * Gets the number of times the chunk data has been replaced.
+     * Writers read it before taking the payload and pass it to {@link #markStored(ChunkOrigin, long)},
+     * so an edit made while the chunk is written is not mistaken for stored.
+     *
+     * @return modification count
+     */
+    public synchronized long getModificationCount()
+    {
+        return modificationCount;
+    }
+
+    /**
+     * Gets the sectors the chunk was read from or last written to.
+     *
+     * @return {@link ChunkOrigin}, or null if the chunk was created in memory
+     */
+    public synchronized ChunkOrigin getOrigin()
+    {
+        return origin;
+    }
+
+    /**
+     * Records the sectors the chunk's current data is stored in and marks it as unmodified.
+     * Called by readers after reading and by writers after writing the chunk.
+     *
+     * @param origin {@link ChunkOrigin} of the stored data, or null if it is not stored in a file
+     */
+    public synchronized void markStored(ChunkOrigin origin)
+    {
+        this.origin = origin;
+        this.modified = false;
+    }
+
+    /**
+     * Records the sectors the chunk was written to and marks it as unmodified,
+     * unless its data was replaced after the writer read the modification count.
+     * The chunk then stays modified, so its next write encodes the new data instead of copying the stored sectors.
+     *
+     * @param origin {@link ChunkOrigin} of the written data, or null if it is not stored in a file
+     * @param expectedModificationCount {@link #getModificationCount()} read before the payload was taken
+     */
+    public synchronized void markStored(ChunkOrigin origin, long expectedModificationCount)
+    {
+        this.origin = origin;
+        if (modificationCount == expectedModificationCount)
+        {
+            this.modified = false;
+        }
+    }
+
     /**
      * Gets chunk location.
      *
@@ -222,13 +543,14 @@ public class Chunk implements IChunk
     }
 
     /**
-     * Gets chunk payload.
+     * Gets chunk payload, reading it first if this chunk is lazily materialized.
      *
      * @return {@link ChunkPayload}
+     * @throws UncheckedIOException if the payload cannot be read
      */
     public ChunkPayload getPayload()
     {
-        return payload;
+        return loadPayloadUnchecked();
     }
 
     /**
@@ -253,11 +575,25 @@ public class Chunk implements IChunk
 
     /**
      * Gets data version of the chunk.
+     * For lazily materialized chunks this scans the NBT data on first call.
      *
      * @return data version
+     * @throws UncheckedIOException if the chunk data cannot be read
      */
-    public int getDataVersion()
+    public synchronized int getDataVersion()
     {
+        if (!dataVersionLoaded)
+        {
+            try
+            {
+                dataVersion = loadPayload().getLength() > 0 ? scanDataVersion() : 0;
+                dataVersionLoaded = true;
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(
+                        String.format("Failed to read data version of chunk %d: %s", index, e.getMessage()), e);
+            }
+        }
         return dataVersion;
     }
 
@@ -279,7 +615,7 @@ public class Chunk implements IChunk
      */
     public boolean hasOwnableEntities() throws IOException
     {
-        if (this.payload.getLength() == 0)
+        if (isEmpty())
         {
             return false;
         }
@@ -352,19 +688,20 @@ public class Chunk implements IChunk
 
     /**
      * Checks if chunk is empty (has no payload data).
+     * Lazily materialized chunks are only created for stored chunks and are never empty before loading.
      *
      * @return true if chunk has no data, false otherwise
      */
     @Override
-    public boolean isEmpty()
+    public synchronized boolean isEmpty()
     {
-        return this.payload.getLength() == 0;
+        return isPayloadLoaded() && pendingData == null && this.payload.getLength() == 0;
     }
 
     @Override
     public int getDataSize()
     {
-        return this.payload.getLength();
+        return loadPayloadUnchecked().getLength();
     }
 
     /**
@@ -378,7 +715,7 @@ public class Chunk implements IChunk
         return "Chunk{" +
                 "location=" + location +
                 ", timestamp=" + timestamp +
-                ", chunkData (Bytes)=" + payload.getLength() +
+                ", chunkData (Bytes)=" + (isPayloadLoaded() ? payload.getLength() : "not loaded") +
                 '}';
     }
 
@@ -388,4 +725,21 @@ public class Chunk implements IChunk
     private record CoordinateData(int x, int z, int dataVersion)
     {
     }
-}
\ No newline at end of file
+
+    /**
+     * Collects serialized NBT data and hands out its buffer without the copy made by {@link #toByteArray()}.
+     */
+    private static final class NBTBuffer extends ByteArrayOutputStream
+    {
+        /**
+         * Gets the internal buffer, valid up to {@link #size()}.
+         * An exact copy is returned instead if more than a quarter of the buffer is unused, so pending data stays compact.
+         *
+         * @return internal buffer or exact copy
+         */
+        byte[] getBuffer()
+        {
+            return buf.length - count > count / 4 ? toByteArray() : buf;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package de.pauleff.jmcx.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Supplies the raw sector data of a chunk on demand.
+ * Used by lazily materialized {@link Chunk}s to defer reading until the payload is first needed.
+ *
+ * @author Paul Ferlitz
+ */
+@FunctionalInterface
+public interface ChunkDataSource
+{
+    /**
+     * Loads the chunk's payload (length field, compression type and compressed data, optionally sector padded).
+     *
+     * @return buffer holding the payload from its position to its limit
+     * @throws IOException if reading or validating the data fails
+     */
+    ByteBuffer load() throws IOException;
+
+    /**
+     * Loads the chunk's payload and parses it.
+     * Sources able to resolve chunks stored in external {@code .mcc} files override this.
+     *
+     * @return parsed {@link ChunkPayload}
+     * @throws IOException if reading or validating the data fails
+     */
+    default ChunkPayload loadPayload() throws IOException
+    {
+        return new ChunkPayload(load());
+    }
+}
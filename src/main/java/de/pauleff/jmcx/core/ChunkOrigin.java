@@ -0,0 +1,132 @@
+package de.pauleff.jmcx.core;
+
+import java.io.File;
+
+import static de.pauleff.jmcx.util.AnvilConstants.SECTOR_SIZE_BYTES;
+
+/**
+ * Records the sectors of a region file a chunk was read from.
+ * Writers use it to copy unmodified chunks byte for byte instead of encoding them again.
+ * Unlike {@link Location} it is immutable and not updated when the chunk is laid out for writing.
+ * A {@link FileStamp} of the file is recorded as well, so sectors overwritten since are not copied.
+ *
+ * @author Paul Ferlitz
+ */
+public final class ChunkOrigin
+{
+    private final File file;
+    private final FileStamp stamp;
+    private final int offset;
+    private final int sectorCount;
+
+    /**
+     * Constructs a ChunkOrigin object.
+     *
+     * @param file region file holding the chunk
+     * @param stamp snapshot of the file when the chunk was read or written
+     * @param offset offset in sectors
+     * @param sectorCount number of sectors
+     * @throws IllegalArgumentException if file or stamp is null or the sector range is empty
+     */
+    public ChunkOrigin(File file, FileStamp stamp, int offset, int sectorCount)
+    {
+        if (file == null || stamp == null)
+        {
+            throw new IllegalArgumentException("File and file stamp cannot be null");
+        }
+        if (offset <= 0 || sectorCount <= 0)
+        {
+            throw new IllegalArgumentException(
+                    String.format("Chunk origin must cover at least one sector, got offset=%d, sectorCount=%d", offset, sectorCount));
+        }
+        this.file = file;
+        this.stamp = stamp;
+        this.offset = offset;
+        this.sectorCount = sectorCount;
+    }
+
+    /**
+     * Gets the region file holding the chunk.
+     *
+     * @return region file
+     */
+    public File getFile()
+    {
+        return file;
+    }
+
+    /**
+     * Gets the snapshot of the file when the chunk was read or written.
+     *
+     * @return file stamp
+     */
+    public FileStamp getStamp()
+    {
+        return stamp;
+    }
+
+    /**
+     * Checks whether the file still exists and has not been modified since, so the sectors still hold the chunk.
+     *
+     * @return true if the sectors can be copied
+     */
+    public boolean isUnchanged()
+    {
+        return stamp.matches(file);
+    }
+
+    /**
+     * Gets the offset in sectors.
+     *
+     * @return offset
+     */
+    public int getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * Gets the number of sectors.
+     *
+     * @return sector count
+     */
+    public int getSectorCount()
+    {
+        return sectorCount;
+    }
+
+    /**
+     * Gets the byte position of the first sector.
+     *
+     * @return file position in bytes
+     */
+    public long getFilePosition()
+    {
+        return (long) offset * SECTOR_SIZE_BYTES;
+    }
+
+    /**
+     * Gets the size of all sectors in bytes.
+     *
+     * @return size in bytes
+     */
+    public int getSize()
+    {
+        return sectorCount * SECTOR_SIZE_BYTES;
+    }
+
+    /**
+     * Returns string representation of ChunkOrigin.
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString()
+    {
+        return "ChunkOrigin{" +
+                "file=" + file.getName() +
+                ", offset=" + offset +
+                ", sectorCount=" + sectorCount +
+                '}';
+    }
+}
@@ -1,23 +1,38 @@
 package de.pauleff.jmcx.core;
 
+import de.pauleff.jmcx.compression.ChunkCodec;
+import de.pauleff.jmcx.compression.CodecRegistry;
+import de.pauleff.jmcx.compression.CompressionPolicy;
 import de.pauleff.jmcx.exceptions.ChunkTooLargeException;
 import de.pauleff.jmcx.util.AnvilUtils;
+import de.pauleff.jnbt.api.ICompoundTag;
+import de.pauleff.jnbt.formats.binary.NBTWriter;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Arrays;
-import java.util.zip.DeflaterOutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.InflaterInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
 
+import static de.pauleff.jmcx.util.AnvilConstants.EXTERNAL_CHUNK_FLAG;
+import static de.pauleff.jmcx.util.AnvilConstants.MAX_CHUNK_SECTORS;
 import static de.pauleff.jmcx.util.AnvilConstants.MAX_CHUNK_SIZE_BYTES;
+import static de.pauleff.jmcx.util.AnvilConstants.MAX_EXTERNAL_CHUNK_SIZE_BYTES;
 
 /**
  * Represents chunk data with compression handling.
+ * Compression is dispatched through the {@link CodecRegistry}.
+ * The compressed bytes are kept as a view of the buffer they were read from and are only copied once the data is replaced.
+ * Payloads needing more than {@value de.pauleff.jmcx.util.AnvilConstants#MAX_CHUNK_SECTORS} sectors are external:
+ * the region file only holds a one-sector stub, the data lives in a {@code c.<x>.<z>.mcc} file next to it.
+ * Payloads created by {@link #encode} are compressed straight into a sector-aligned buffer with the chunk header
+ * reserved up front, see {@link #getSectorBuffer()}.
  *
  * @author Paul Ferlitz
  */
@@ -26,10 +41,12 @@ public class ChunkPayload
     private final byte compressionType;
     private int payloadLength;
     private int length;
-    private byte[] compressedData;
+    private ByteBuffer compressedData;
+    private byte[] frame;
 
     /**
      * Constructs a ChunkPayload from byte array.
+     * The array is wrapped, not copied, and must not be modified afterwards.
      *
      * @param payload byte array representing chunk payload
      * @throws IOException if I/O error occurs during decompression
@@ -37,83 +54,418 @@ public class ChunkPayload
      */
     public ChunkPayload(byte[] payload) throws IOException
     {
-        if (payload.length > MAX_CHUNK_SIZE_BYTES)
+        this(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Constructs a ChunkPayload from the remaining bytes of a buffer.
+     * The buffer is expected to be big-endian. The compressed data is referenced as a slice of it, nothing is copied.
+     * The buffer's position is not modified and its contents must not change while this payload is in use.
+     *
+     * @param payload buffer representing chunk payload
+     * @throws IOException if I/O error occurs during decompression or the data is stored in an external file
+     * @throws ChunkTooLargeException if payload exceeds maximum chunk size
+     */
+    public ChunkPayload(ByteBuffer payload) throws IOException
+    {
+        int payloadSize = payload.remaining();
+        if (payloadSize > MAX_CHUNK_SIZE_BYTES)
         {
             throw new ChunkTooLargeException(
-                    "Chunk payload exceeds maximum size. Size: " + payload.length +
+                    "Chunk payload exceeds maximum size. Size: " + payloadSize +
                             " bytes, Maximum: " + MAX_CHUNK_SIZE_BYTES + " bytes"
             );
         }
 
-        this.payloadLength = payload.length;
+        this.payloadLength = payloadSize;
         if (this.payloadLength == 0)
         {
             this.length = 0;
             this.compressionType = 3;
-            this.compressedData = new byte[0];
+            this.compressedData = ByteBuffer.allocate(0);
         } else
         {
-            this.length = AnvilUtils.readInt(Arrays.copyOfRange(payload, 0, 4), ByteOrder.BIG_ENDIAN);
+            int start = payload.position();
+            this.length = payloadSize < 4 ? -1 : payload.getInt(start);
 
-            if (this.length < 0 || this.length > payload.length - 5)
+            if (this.length < 0 || this.length > payloadSize - 5)
             {
                 throw new IOException(
                         "Invalid chunk length field: " + this.length +
-                                ". Payload size: " + payload.length + " bytes"
+                                ". Payload size: " + payloadSize + " bytes"
                 );
             }
 
-            this.compressionType = payload[4];
-            this.compressedData = Arrays.copyOfRange(payload, 5, 5 + this.length);
+            byte type = payload.get(start + 4);
+            if ((type & EXTERNAL_CHUNK_FLAG) != 0)
+            {
+                throw new IOException(
+                        "Chunk data is stored in an external .mcc file (compression type " + (type & 0xFF) +
+                                "), use ChunkPayload.ofExternal to load it"
+                );
+            }
+
+            this.compressionType = type;
+            this.compressedData = payload.slice(start + 5, this.length);
         }
     }
 
     /**
-     * Compresses data using current compression type and updates internal state.
+     * Creates a payload from already compressed data.
+     *
+     * @param compressionType compression type of the data
+     * @param compressedData compressed data as stored after the type byte, referenced from its position to its limit
+     */
+    private ChunkPayload(byte compressionType, ByteBuffer compressedData)
+    {
+        this.compressionType = compressionType;
+        this.compressedData = compressedData.slice();
+        this.length = this.compressedData.remaining();
+        this.payloadLength = getSectorCount() * AnvilUtils.SECTOR_SIZE;
+    }
+
+    /**
+     * Creates a payload from already compressed data.
+     *
+     * @param compressionType compression type of the data
+     * @param compressedData compressed data as stored after the type byte (including the codec id for type 127), not copied
+     * @return new payload, external if it needs more than {@value de.pauleff.jmcx.util.AnvilConstants#MAX_CHUNK_SECTORS} sectors
+     * @throws ChunkTooLargeException if the data exceeds the maximum external chunk size
+     */
+    public static ChunkPayload ofCompressed(byte compressionType, byte[] compressedData)
+    {
+        checkExternalSize(compressedData.length);
+        return new ChunkPayload(compressionType, ByteBuffer.wrap(compressedData));
+    }
+
+    /**
+     * Creates a payload from the contents of an external {@code c.<x>.<z>.mcc} file.
+     * The buffer is referenced, not copied, so a read-only mapping of the file keeps large chunks off the heap.
+     * Its contents must not change while this payload is in use.
+     *
+     * @param compressionType compression type from the region file stub, with or without the external flag
+     * @param compressedData remaining bytes of the external file, its position is not modified
+     * @return new payload
+     * @throws ChunkTooLargeException if the data exceeds the maximum external chunk size
+     */
+    public static ChunkPayload ofExternal(byte compressionType, ByteBuffer compressedData)
+    {
+        checkExternalSize(compressedData.remaining());
+        return new ChunkPayload((byte) (compressionType & ~EXTERNAL_CHUNK_FLAG), compressedData);
+    }
+
+    /**
+     * Creates a payload by mapping an external {@code c.<x>.<z>.mcc} file read-only, so large chunks are never
+     * copied onto the heap. The mapping stays valid if the file is later replaced by renaming another file over it.
+     *
+     * @param compressionType compression type from the region file stub, with or without the external flag
+     * @param externalFile external chunk file
+     * @return new payload over the whole file
+     * @throws IOException if the file is missing, empty or cannot be mapped
+     * @throws ChunkTooLargeException if the file exceeds the maximum external chunk size
+     */
+    public static ChunkPayload mapExternal(byte compressionType, File externalFile) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(externalFile.toPath(), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if (size == 0)
+            {
+                throw new IOException("External chunk file is empty: " + externalFile.getName());
+            }
+            checkExternalSize(size);
+            return ofExternal(compressionType, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Creates a payload from a sector-aligned frame holding the chunk header followed by the compressed data.
+     * The header is filled in here. The frame is referenced, not copied, and must be zero beyond the data.
+     *
+     * @param compressionType compression type of the data
+     * @param frame frame with the compressed data starting after the 5-byte header
+     * @param end end offset of the compressed data in the frame
+     * @return new payload, external if it needs more than {@value de.pauleff.jmcx.util.AnvilConstants#MAX_CHUNK_SECTORS} sectors
+     * @throws ChunkTooLargeException if the data exceeds the maximum external chunk size
+     */
+    static ChunkPayload ofFrame(byte compressionType, byte[] frame, int end)
+    {
+        int dataLength = end - PayloadOutputStream.HEADER_LENGTH;
+        checkExternalSize(dataLength);
+        ByteBuffer.wrap(frame).putInt(0, dataLength).put(4, compressionType);
+
+        ChunkPayload payload = new ChunkPayload(compressionType,
+                ByteBuffer.wrap(frame, PayloadOutputStream.HEADER_LENGTH, dataLength));
+        payload.frame = frame;
+        return payload;
+    }
+
+    /**
+     * Serializes NBT data and compresses it on the fly into a sector-aligned payload.
+     * Neither the uncompressed NBT bytes nor the compressed data are held in a separate array.
+     *
+     * @param nbtData root compound tag of the chunk
+     * @param codec codec to compress with
+     * @param policy compression settings
+     * @return new payload, external if it needs more than {@value de.pauleff.jmcx.util.AnvilConstants#MAX_CHUNK_SECTORS} sectors
+     * @throws IOException if NBT serialization or compression fails
+     * @throws ChunkTooLargeException if the compressed data exceeds the maximum external chunk size
+     */
+    public static ChunkPayload encode(ICompoundTag nbtData, ChunkCodec codec, CompressionPolicy policy) throws IOException
+    {
+        PayloadOutputStream out = new PayloadOutputStream(policy.getBufferSize());
+        CodecRegistry.writeHeader(codec, out);
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(codec.openCompressor(out, policy)));
+             NBTWriter writer = new NBTWriter(dos))
+        {
+            writer.write(nbtData);
+        }
+        return out.toPayload(codec.getType());
+    }
+
+    /**
+     * Compresses NBT bytes into a sector-aligned payload.
      *
      * @param data uncompressed chunk data
+     * @param length number of bytes to use from the start of data
+     * @param codec codec to compress with
+     * @param policy compression settings
+     * @return new payload, external if it needs more than {@value de.pauleff.jmcx.util.AnvilConstants#MAX_CHUNK_SECTORS} sectors
      * @throws IOException if compression fails
-     * @throws ChunkTooLargeException if compressed data exceeds limits
+     * @throws ChunkTooLargeException if the uncompressed or compressed data exceeds the maximum external chunk size
      */
-    protected void compressAndSetData(byte[] data) throws IOException
+    public static ChunkPayload encode(byte[] data, int length, ChunkCodec codec, CompressionPolicy policy) throws IOException
     {
-        if (data.length > MAX_CHUNK_SIZE_BYTES)
+        if (length > MAX_EXTERNAL_CHUNK_SIZE_BYTES)
         {
             throw new ChunkTooLargeException(
-                    "Uncompressed chunk data exceeds maximum size. Size: " + data.length +
-                            " bytes, Maximum: " + MAX_CHUNK_SIZE_BYTES + " bytes"
+                    "Uncompressed chunk data exceeds maximum size. Size: " + length +
+                            " bytes, Maximum: " + MAX_EXTERNAL_CHUNK_SIZE_BYTES + " bytes"
             );
         }
 
-        byte[] buffer = compressData(data, getCompressionType());
+        PayloadOutputStream out = new PayloadOutputStream(Math.max(policy.getBufferSize(), length / 2 + 64));
+        CodecRegistry.writeHeader(codec, out);
+        try (OutputStream compressor = codec.openCompressor(out, policy))
+        {
+            compressor.write(data, 0, length);
+        }
+        return out.toPayload(codec.getType());
+    }
 
-        int totalPayloadSize = buffer.length + 4 + 1;
-        if (totalPayloadSize > MAX_CHUNK_SIZE_BYTES)
+    /**
+     * Checks that compressed data fits into an external chunk file.
+     *
+     * @param dataSize size of the compressed data in bytes
+     * @throws ChunkTooLargeException if the data exceeds the maximum external chunk size
+     */
+    private static void checkExternalSize(long dataSize)
+    {
+        if (dataSize + 5 > MAX_EXTERNAL_CHUNK_SIZE_BYTES)
         {
             throw new ChunkTooLargeException(
-                    "Compressed chunk payload exceeds maximum size. Size: " + totalPayloadSize +
-                            " bytes, Maximum: " + MAX_CHUNK_SIZE_BYTES + " bytes"
+                    "Compressed chunk payload exceeds maximum size. Size: " + (dataSize + 5) +
+                            " bytes, Maximum: " + MAX_EXTERNAL_CHUNK_SIZE_BYTES + " bytes"
             );
         }
+    }
+
+    /**
+     * Compresses data using current compression type and updates internal state.
+     *
+     * @param data uncompressed chunk data
+     * @throws IOException if compression fails
+     * @throws ChunkTooLargeException if compressed data exceeds limits
+     */
+    protected void compressAndSetData(byte[] data) throws IOException
+    {
+        compressAndSetData(data, CompressionPolicy.DEFAULT);
+    }
+
+    /**
+     * Compresses data using current compression type and the given settings and updates internal state.
+     *
+     * @param data uncompressed chunk data
+     * @param policy compression settings
+     * @throws IOException if compression fails
+     * @throws ChunkTooLargeException if compressed data exceeds limits
+     */
+    protected void compressAndSetData(byte[] data, CompressionPolicy policy) throws IOException
+    {
+        ChunkPayload encoded = encode(data, data.length, getCodec(), policy);
+
+        this.compressedData = encoded.compressedData;
+        this.frame = encoded.frame;
+        setLength(encoded.length);
+        setPayloadLength(getSectorCount() * AnvilUtils.SECTOR_SIZE);
+    }
+
+    /**
+     * Creates a payload holding new data compressed with the same codec as this one.
+     * This payload is left unchanged, so it may safely be shared between chunks.
+     *
+     * @param data uncompressed chunk data
+     * @param length number of bytes to use from the start of data
+     * @param policy compression settings
+     * @return payload holding the new data
+     * @throws IOException if compression fails
+     * @throws ChunkTooLargeException if compressed data exceeds limits
+     */
+    protected ChunkPayload withData(byte[] data, int length, CompressionPolicy policy) throws IOException
+    {
+        return encode(data, length, getCodec(), policy);
+    }
+
+    /**
+     * Creates a copy of this payload recompressed with the same codec and the given settings.
+     * This payload is left unchanged; empty payloads are returned as is.
+     *
+     * @param policy compression settings
+     * @return recompressed payload
+     * @throws IOException if decompression or compression fails
+     * @throws ChunkTooLargeException if the recompressed data exceeds limits
+     */
+    public ChunkPayload recompress(CompressionPolicy policy) throws IOException
+    {
+        if (this.length == 0)
+        {
+            return this;
+        }
+
+        return transcode(getCodec(), policy);
+    }
+
+    /**
+     * Creates a copy of this payload decompressed and compressed again with another codec.
+     * Works on the raw bytes only, no NBT is parsed. This payload is left unchanged; empty payloads are returned as is.
+     *
+     * @param codec codec to compress with
+     * @param policy compression settings
+     * @return transcoded payload
+     * @throws IOException if decompression or compression fails
+     * @throws ChunkTooLargeException if the transcoded data exceeds limits
+     */
+    public ChunkPayload transcode(ChunkCodec codec, CompressionPolicy policy) throws IOException
+    {
+        if (this.length == 0)
+        {
+            return this;
+        }
+
+        byte[] data = getDecompressedData();
+        return encode(data, data.length, codec, policy);
+    }
+
+    /**
+     * Creates a copy of this payload moved to other chunk coordinates.
+     * The root xPos and zPos tags are patched in the decompressed bytes without building an NBT tree,
+     * then the data is compressed again. This payload is left unchanged.
+     *
+     * @param chunkX new chunk x-coordinate
+     * @param chunkZ new chunk z-coordinate
+     * @param codec codec to compress with
+     * @param policy compression settings
+     * @return relocated payload, or empty if this payload is empty or has no root xPos/zPos tags
+     * @throws IOException if the NBT data is malformed or decompression or compression fails
+     * @throws ChunkTooLargeException if the relocated data exceeds limits
+     */
+    public Optional<ChunkPayload> relocate(int chunkX, int chunkZ, ChunkCodec codec, CompressionPolicy policy) throws IOException
+    {
+        if (this.length == 0)
+        {
+            return Optional.empty();
+        }
+
+        byte[] data = getDecompressedData();
+        int[] offsets = ChunkTagScanner.findCoordinateOffsets(data);
+        if (offsets == null)
+        {
+            return Optional.empty();
+        }
 
-        this.compressedData = buffer;
-        setLength(buffer.length);
-        int totalSize = buffer.length + 4 + 1;
-        setPayloadLength(AnvilUtils.calculateSectorCount(totalSize) * AnvilUtils.SECTOR_SIZE);
+        ByteBuffer.wrap(data).putInt(offsets[0], chunkX).putInt(offsets[1], chunkZ);
+        return Optional.of(encode(data, data.length, codec, policy));
     }
 
     /**
-     * Gets full payload with sector alignment.
+     * Gets full payload with sector alignment, as stored in the region file.
+     * For external payloads this is only the stub carrying the flagged compression type,
+     * the data itself is written from {@link #getDataBuffer()}.
      *
      * @return full padded payload
      */
     public byte[] getFullPayload()
     {
-        ByteBuffer buffer = ByteBuffer.allocate(5 + this.length).order(ByteOrder.BIG_ENDIAN);
+        ByteBuffer buffer = ByteBuffer.allocate(getSectorCount() * AnvilUtils.SECTOR_SIZE).order(ByteOrder.BIG_ENDIAN);
+        if (isExternal())
+        {
+            buffer.putInt(1);
+            buffer.put((byte) (this.compressionType | EXTERNAL_CHUNK_FLAG));
+            return buffer.array();
+        }
         buffer.putInt(this.length);
         buffer.put(this.compressionType);
-        buffer.put(this.compressedData);
-        return AnvilUtils.padToSectorSize(buffer.array());
+        buffer.put(this.compressedData.duplicate());
+        return buffer.array();
+    }
+
+    /**
+     * Gets the sectors of this payload as stored in the region file.
+     * Payloads created by {@link #encode} return a view of their frame; others build it like {@link #getFullPayload()}.
+     * For external payloads this is only the stub carrying the flagged compression type.
+     *
+     * @return read-only buffer of whole sectors
+     */
+    public ByteBuffer getSectorBuffer()
+    {
+        if (frame == null || isExternal())
+        {
+            return ByteBuffer.wrap(getFullPayload()).asReadOnlyBuffer();
+        }
+        return ByteBuffer.wrap(frame, 0, getSectorCount() * AnvilUtils.SECTOR_SIZE).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Gets the number of sectors the full payload occupies in the region file.
+     * Does not build the payload, unlike {@link #getFullPayload()}. External payloads occupy a single sector.
+     *
+     * @return number of 4KiB sectors
+     */
+    public int getSectorCount()
+    {
+        return isExternal() ? 1 : AnvilUtils.calculateSectorCount(5 + this.length);
+    }
+
+    /**
+     * Checks whether the payload is too large for the region file and stored in an external {@code .mcc} file.
+     *
+     * @return true if the payload needs more than {@value de.pauleff.jmcx.util.AnvilConstants#MAX_CHUNK_SECTORS} sectors
+     */
+    public boolean isExternal()
+    {
+        return AnvilUtils.calculateSectorCount(5 + this.length) > MAX_CHUNK_SECTORS;
+    }
+
+    /**
+     * Checks whether the data is a view of a memory-mapped region file.
+     * Such a payload changes or becomes invalid if the region file is overwritten in place.
+     * External payloads are not counted, their files are only ever replaced by renaming.
+     *
+     * @return true if the data is backed by a mapped region file
+     */
+    public boolean isMapped()
+    {
+        return compressedData.isDirect() && !isExternal();
+    }
+
+    /**
+     * Gets a payload whose data lives on the heap, copying it if this payload is memory-mapped.
+     *
+     * @return this payload, or a heap copy if it is mapped
+     */
+    public ChunkPayload toHeap()
+    {
+        return isMapped() ? new ChunkPayload(compressionType, ByteBuffer.wrap(getData())) : this;
     }
 
     /**
@@ -167,13 +519,25 @@ public class ChunkPayload
     }
 
     /**
-     * Gets (possibly compressed) chunk data.
+     * Gets a copy of the (possibly compressed) chunk data.
      *
      * @return (possibly compressed) chunk data
      */
     public byte[] getData()
     {
-        return compressedData;
+        byte[] data = new byte[compressedData.remaining()];
+        compressedData.get(0, data);
+        return data;
+    }
+
+    /**
+     * Gets a read-only view of the (possibly compressed) chunk data without copying it.
+     *
+     * @return read-only buffer positioned at the first data byte
+     */
+    public ByteBuffer getDataBuffer()
+    {
+        return compressedData.asReadOnlyBuffer();
     }
 
     /**
@@ -184,73 +548,98 @@ public class ChunkPayload
      */
     public byte[] getDecompressedData() throws IOException
     {
-        return decompressData(getData(), getCompressionType());
+        return decompressData(compressedData, getCompressionType());
+    }
+
+    /**
+     * Opens a stream decompressing chunk data on the fly.
+     * Allows consumers to stop reading early instead of inflating the whole payload.
+     * The stream should be closed to return pooled codec resources.
+     *
+     * @return stream of decompressed chunk data
+     * @throws IOException if the compression type is unsupported or the stream cannot be opened
+     */
+    public InputStream getDecompressedStream() throws IOException
+    {
+        return getCodec().openStream(CodecRegistry.stripHeader(compressionType, compressedData));
+    }
+
+    /**
+     * Gets the codec the chunk data is compressed with.
+     * For custom compression (type 127) the codec is looked up by the id stored in front of the data.
+     *
+     * @return codec of this payload
+     * @throws IOException if no codec is registered for the compression type or id
+     */
+    public ChunkCodec getCodec() throws IOException
+    {
+        return CodecRegistry.resolve(compressionType, compressedData);
     }
 
     /**
      * Decompresses chunk data using specified compression type.
      *
      * @param data compressed chunk data
-     * @param compressionType compression type (1=GZip, 2=Zlib, 3=Uncompressed)
+     * @param compressionType compression type (1=GZip, 2=Zlib, 3=Uncompressed, 4=LZ4, 127=Custom)
      * @return decompressed data
      * @throws IOException if decompression fails
      */
     public byte[] decompressData(byte[] data, byte compressionType) throws IOException
     {
-        try (ByteArrayInputStream byteStream = new ByteArrayInputStream(data))
+        if (compressionType == 3)
         {
-            return switch (compressionType)
-            {
-                case 1 -> new GZIPInputStream(byteStream).readAllBytes();
-                case 2 -> new InflaterInputStream(byteStream).readAllBytes();
-                case 3 -> data;
-                case 4 -> throw new IOException("LZ4 compression (type 4) is not yet implemented");
-                case 127 -> throw new IOException("Custom compression (type 127) is not supported");
-                default -> throw new IOException("Unknown compression type: " + compressionType +
-                        ". Supported types: 1 (GZip), 2 (Zlib), 3 (Uncompressed)");
-            };
+            return data;
         }
+        return decompressData(ByteBuffer.wrap(data), compressionType);
+    }
+
+    /**
+     * Decompresses the remaining bytes of a buffer using specified compression type.
+     *
+     * @param data compressed chunk data, its position is not modified
+     * @param compressionType compression type (1=GZip, 2=Zlib, 3=Uncompressed, 4=LZ4, 127=Custom)
+     * @return decompressed data
+     * @throws IOException if decompression fails
+     */
+    private static byte[] decompressData(ByteBuffer data, byte compressionType) throws IOException
+    {
+        ChunkCodec codec = CodecRegistry.resolve(compressionType, data);
+        return codec.decompress(CodecRegistry.stripHeader(compressionType, data));
     }
 
     /**
      * Compresses chunk data using specified compression type.
+     * Custom compression needs a codec id, use {@link CodecRegistry#encode(ChunkCodec, byte[])} for it.
      *
      * @param data uncompressed chunk data
-     * @param compressionType compression type (1=GZip, 2=Zlib, 3=Uncompressed)
+     * @param compressionType compression type (1=GZip, 2=Zlib, 3=Uncompressed, 4=LZ4)
      * @return compressed data
-     * @throws IOException if compression fails
+     * @throws IOException if compression fails or the compression type is unknown
      */
     public byte[] compressData(byte[] data, byte compressionType) throws IOException
     {
-        try (ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-             ByteArrayInputStream inputStream = new ByteArrayInputStream(data))
+        return compressData(data, compressionType, CompressionPolicy.DEFAULT);
+    }
+
+    /**
+     * Compresses chunk data using specified compression type and settings.
+     * Custom compression needs a codec id, use {@link CodecRegistry#encode(ChunkCodec, byte[], CompressionPolicy)} for it.
+     *
+     * @param data uncompressed chunk data
+     * @param compressionType compression type (1=GZip, 2=Zlib, 3=Uncompressed, 4=LZ4)
+     * @param policy compression settings
+     * @return compressed data
+     * @throws IOException if compression fails or the compression type is unknown
+     */
+    public byte[] compressData(byte[] data, byte compressionType, CompressionPolicy policy) throws IOException
+    {
+        if (compressionType == CodecRegistry.CUSTOM_TYPE)
         {
-            switch (compressionType)
-            {
-                case 1:
-                    try (GZIPOutputStream gzipStream = new GZIPOutputStream(byteStream))
-                    {
-                        inputStream.transferTo(gzipStream);
-                    }
-                    break;
-                case 2:
-                    try (DeflaterOutputStream deflaterStream = new DeflaterOutputStream(byteStream))
-                    {
-                        inputStream.transferTo(deflaterStream);
-                    }
-                    break;
-                case 3:
-                    return data;
-                case 4:
-                    throw new IOException("LZ4 compression (type 4) is not yet implemented");
-                case 127:
-                    throw new IOException("Custom compression (type 127) is not supported");
-                default:
-                    throw new IOException("Unknown compression type: " + compressionType +
-                            ". Supported types: 1 (GZip), 2 (Zlib), 3 (Uncompressed)");
-            }
-            return byteStream.toByteArray();
+            throw new IOException("Custom compression (type 127) requires a codec id");
         }
+        ChunkCodec codec = CodecRegistry.byType(compressionType)
+                .orElseThrow(() -> new IOException("Unknown compression type: " + compressionType));
+        return CodecRegistry.encode(codec, data, policy);
     }
 
     /**
@@ -265,7 +654,7 @@ public class ChunkPayload
                 "payloadLength=" + payloadLength +
                 ", length=" + length +
                 ", compressionType=" + compressionType +
-                ", chunkData (Bytes)=" + compressedData.length +
+                ", chunkData (Bytes)=" + compressedData.remaining() +
                 '}';
     }
 }
\ No newline at end of file
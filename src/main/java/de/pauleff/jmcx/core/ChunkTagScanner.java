@@ -0,0 +1,237 @@
+package de.pauleff.jmcx.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming scanner extracting the data version and position tags from the root compound of chunk NBT data.
+ * Skips all other tags without building a tag tree and stops reading as soon as the requested tags are found.
+ *
+ * @author Paul Ferlitz
+ */
+final class ChunkTagScanner
+{
+    private static final byte TAG_END = 0;
+    private static final byte TAG_BYTE = 1;
+    private static final byte TAG_SHORT = 2;
+    private static final byte TAG_INT = 3;
+    private static final byte TAG_LONG = 4;
+    private static final byte TAG_FLOAT = 5;
+    private static final byte TAG_DOUBLE = 6;
+    private static final byte TAG_BYTE_ARRAY = 7;
+    private static final byte TAG_STRING = 8;
+    private static final byte TAG_LIST = 9;
+    private static final byte TAG_COMPOUND = 10;
+    private static final byte TAG_INT_ARRAY = 11;
+    private static final byte TAG_LONG_ARRAY = 12;
+
+    private ChunkTagScanner()
+    {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Scans uncompressed NBT data for the data version and, if requested, the position tags.
+     *
+     * @param input               stream of uncompressed NBT data starting at the root tag
+     * @param coordinatesRequired whether xPos/zPos, Position or pos must be found before stopping
+     * @return {@link ScanResult} with all tags found until the scan stopped
+     * @throws IOException if the data is malformed or ends unexpectedly
+     */
+    static ScanResult scan(InputStream input, boolean coordinatesRequired) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+
+        byte rootType = in.readByte();
+        if (rootType != TAG_COMPOUND)
+        {
+            throw new IOException("Invalid chunk format: root tag type " + rootType + " is not a compound");
+        }
+        skipString(in);
+
+        ScanResult result = new ScanResult();
+        byte type;
+        while (!result.isComplete(coordinatesRequired) && (type = in.readByte()) != TAG_END)
+        {
+            String name = in.readUTF();
+
+            if (type == TAG_INT && "DataVersion".equals(name))
+            {
+                result.dataVersion = in.readInt();
+            } else if (type == TAG_INT && "xPos".equals(name))
+            {
+                result.xPos = in.readInt();
+            } else if (type == TAG_INT && "zPos".equals(name))
+            {
+                result.zPos = in.readInt();
+            } else if (type == TAG_INT_ARRAY && "Position".equals(name))
+            {
+                result.position = readIntArray(in);
+            } else if (type == TAG_INT_ARRAY && "pos".equals(name))
+            {
+                result.pos = readIntArray(in);
+            } else
+            {
+                skipPayload(in, type);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Locates the values of the root xPos and zPos tags in uncompressed NBT data, so they can be patched in place.
+     *
+     * @param data uncompressed NBT data starting at the root tag
+     * @return [xPos offset, zPos offset] into data, or null if either tag is missing
+     * @throws IOException if the data is malformed or ends unexpectedly
+     */
+    static int[] findCoordinateOffsets(byte[] data) throws IOException
+    {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(data);
+        DataInputStream in = new DataInputStream(bytes);
+
+        byte rootType = in.readByte();
+        if (rootType != TAG_COMPOUND)
+        {
+            throw new IOException("Invalid chunk format: root tag type " + rootType + " is not a compound");
+        }
+        skipString(in);
+
+        int xPosOffset = -1;
+        int zPosOffset = -1;
+        byte type;
+        while ((xPosOffset < 0 || zPosOffset < 0) && (type = in.readByte()) != TAG_END)
+        {
+            String name = in.readUTF();
+
+            if (type == TAG_INT && "xPos".equals(name))
+            {
+                xPosOffset = data.length - bytes.available();
+            } else if (type == TAG_INT && "zPos".equals(name))
+            {
+                zPosOffset = data.length - bytes.available();
+            }
+            skipPayload(in, type);
+        }
+
+        return xPosOffset >= 0 && zPosOffset >= 0 ? new int[]{xPosOffset, zPosOffset} : null;
+    }
+
+    /**
+     * Reads an int array payload.
+     *
+     * @param in input to read from
+     * @return int array
+     * @throws IOException if reading fails
+     */
+    private static int[] readIntArray(DataInputStream in) throws IOException
+    {
+        int length = readLength(in);
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++)
+        {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * Skips a modified UTF-8 string with 2-byte length prefix.
+     *
+     * @param in input to skip in
+     * @throws IOException if skipping fails
+     */
+    private static void skipString(DataInputStream in) throws IOException
+    {
+        in.skipNBytes(in.readUnsignedShort());
+    }
+
+    /**
+     * Reads and validates a 4-byte array or list length.
+     *
+     * @param in input to read from
+     * @return non-negative length
+     * @throws IOException if the length is negative
+     */
+    private static int readLength(DataInputStream in) throws IOException
+    {
+        int length = in.readInt();
+        if (length < 0)
+        {
+            throw new IOException("Invalid NBT data: negative length " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Skips the payload of a tag of the given type, recursing into lists and compounds.
+     *
+     * @param in   input to skip in
+     * @param type tag type
+     * @throws IOException if the type is unknown or skipping fails
+     */
+    private static void skipPayload(DataInputStream in, byte type) throws IOException
+    {
+        switch (type)
+        {
+            case TAG_BYTE -> in.skipNBytes(1);
+            case TAG_SHORT -> in.skipNBytes(2);
+            case TAG_INT, TAG_FLOAT -> in.skipNBytes(4);
+            case TAG_LONG, TAG_DOUBLE -> in.skipNBytes(8);
+            case TAG_BYTE_ARRAY -> in.skipNBytes(readLength(in));
+            case TAG_STRING -> skipString(in);
+            case TAG_INT_ARRAY -> in.skipNBytes(readLength(in) * 4L);
+            case TAG_LONG_ARRAY -> in.skipNBytes(readLength(in) * 8L);
+            case TAG_LIST ->
+            {
+                byte elementType = in.readByte();
+                int size = readLength(in);
+                for (int i = 0; i < size; i++)
+                {
+                    skipPayload(in, elementType);
+                }
+            }
+            case TAG_COMPOUND ->
+            {
+                byte childType;
+                while ((childType = in.readByte()) != TAG_END)
+                {
+                    skipString(in);
+                    skipPayload(in, childType);
+                }
+            }
+            default -> throw new IOException("Invalid NBT data: unknown tag type " + type);
+        }
+    }
+
+    /**
+     * Tags found by a scan, null if not encountered.
+     */
+    static final class ScanResult
+    {
+        Integer dataVersion;
+        Integer xPos;
+        Integer zPos;
+        int[] position;
+        int[] pos;
+
+        /**
+         * Checks if all requested tags have been found.
+         *
+         * @param coordinatesRequired whether position tags are requested
+         * @return true if scanning can stop
+         */
+        private boolean isComplete(boolean coordinatesRequired)
+        {
+            if (dataVersion == null)
+            {
+                return false;
+            }
+            return !coordinatesRequired || position != null || pos != null || (xPos != null && zPos != null);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package de.pauleff.jmcx.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snapshot of a file's state, used to detect whether sectors recorded in a {@link ChunkOrigin} may have changed.
+ * The modification time alone is too coarse, two writes within one clock tick leave it unchanged.
+ * The size and file key (inode) are compared as well, and writers of this library advance a per-file generation
+ * after every change, so writes within the same process are always detected.
+ *
+ * @author Paul Ferlitz
+ */
+public final class FileStamp
+{
+    private static final Map<Path, AtomicLong> GENERATIONS = new ConcurrentHashMap<>();
+
+    private final FileTime lastModified;
+    private final long size;
+    private final Object fileKey;
+    private final long generation;
+
+    private FileStamp(FileTime lastModified, long size, Object fileKey, long generation)
+    {
+        this.lastModified = lastModified;
+        this.size = size;
+        this.fileKey = fileKey;
+        this.generation = generation;
+    }
+
+    /**
+     * Takes a snapshot of the current state of a file.
+     * The generation is read first, so a write racing with the snapshot makes it stale rather than current.
+     *
+     * @param file file to take the snapshot of
+     * @return snapshot of the file
+     * @throws IOException if the file attributes cannot be read
+     */
+    public static FileStamp of(File file) throws IOException
+    {
+        Path path = file.toPath();
+        long generation = getGeneration(path);
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return new FileStamp(attributes.lastModifiedTime(), attributes.size(), attributes.fileKey(), generation);
+    }
+
+    /**
+     * Records that a file has been changed, making all earlier snapshots of it stale.
+     * Called by writers after writing to the file and before taking a new snapshot.
+     *
+     * @param file changed file
+     */
+    public static void advance(File file)
+    {
+        GENERATIONS.computeIfAbsent(generationKey(file.toPath()), key -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Checks whether a file still exists and is unchanged since this snapshot was taken.
+     *
+     * @param file file this snapshot was taken of
+     * @return true if modification time, size, file key and generation all match
+     */
+    public boolean matches(File file)
+    {
+        Path path = file.toPath();
+        try
+        {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return generation == getGeneration(path)
+                    && attributes.lastModifiedTime().equals(lastModified)
+                    && attributes.size() == size
+                    && Objects.equals(attributes.fileKey(), fileKey);
+        } catch (IOException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the modification time of the file when the snapshot was taken.
+     *
+     * @return modification time
+     */
+    public FileTime getLastModified()
+    {
+        return lastModified;
+    }
+
+    /**
+     * Gets the size of the file when the snapshot was taken.
+     *
+     * @return size in bytes
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the current generation of a file.
+     *
+     * @param path file path
+     * @return number of changes recorded through {@link #advance(File)}
+     */
+    private static long getGeneration(Path path)
+    {
+        AtomicLong generation = GENERATIONS.get(generationKey(path));
+        return generation == null ? 0 : generation.get();
+    }
+
+    /**
+     * Gets the key the generation of a file is tracked under.
+     * The absolute path is used rather than the file key, since atomic writes replace the file and with it the key.
+     *
+     * @param path file path
+     * @return normalized absolute path
+     */
+    private static Path generationKey(Path path)
+    {
+        return path.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Returns string representation of FileStamp.
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString()
+    {
+        return "FileStamp{" +
+                "lastModified=" + lastModified +
+                ", size=" + size +
+                ", generation=" + generation +
+                '}';
+    }
+}
@@ -31,9 +31,21 @@ public class Location
         this.sectorCount = AnvilUtils.readInt(Arrays.copyOfRange(locationBytes, 3, 4), ByteOrder.BIG_ENDIAN);
     }
 
+    /**
+     * Constructs a Location from already decoded values.
+     *
+     * @param offset      offset in sectors
+     * @param sectorCount number of sectors
+     */
+    public Location(int offset, int sectorCount)
+    {
+        this.offset = offset;
+        this.sectorCount = sectorCount;
+    }
+
     public static Location createEmptyLocation()
     {
-        return new Location(new byte[]{0, 0, 0, 0});
+        return new Location(0, 0);
     }
 
     /**
@@ -0,0 +1,115 @@
+package de.pauleff.jmcx.core;
+
+import de.pauleff.jmcx.exceptions.ChunkTooLargeException;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static de.pauleff.jmcx.util.AnvilConstants.MAX_EXTERNAL_CHUNK_SIZE_BYTES;
+import static de.pauleff.jmcx.util.AnvilConstants.SECTOR_SIZE_BYTES;
+
+/**
+ * Collects compressed chunk data directly behind a reserved 5-byte chunk header.
+ * The buffer always grows in whole sectors and stays zero beyond the data,
+ * so the finished payload can be written to a region file as is, without padding or copying.
+ *
+ * @author Paul Ferlitz
+ */
+final class PayloadOutputStream extends OutputStream
+{
+    static final int HEADER_LENGTH = 5;
+
+    private byte[] buffer;
+    private int count = HEADER_LENGTH;
+
+    /**
+     * Creates a buffer for compressed chunk data.
+     *
+     * @param expectedSize expected size of the compressed data in bytes, 0 if unknown
+     */
+    PayloadOutputStream(int expectedSize)
+    {
+        this.buffer = new byte[alignToSectors(Math.max(expectedSize, 0) + HEADER_LENGTH)];
+    }
+
+    /**
+     * Writes a single byte.
+     *
+     * @param b byte to write
+     * @throws ChunkTooLargeException if the data exceeds the maximum external chunk size
+     */
+    @Override
+    public void write(int b)
+    {
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    /**
+     * Writes len bytes.
+     *
+     * @param b source array
+     * @param off offset in source array
+     * @param len number of bytes to write
+     * @throws ChunkTooLargeException if the data exceeds the maximum external chunk size
+     */
+    @Override
+    public void write(byte[] b, int off, int len)
+    {
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * Creates a payload backed by the collected data and fills in its chunk header.
+     * The buffer is trimmed to the sectors in use if a lot of it was left over from growing.
+     *
+     * @param compressionType compression type of the collected data
+     * @return new payload sharing this stream's buffer, the stream must not be written to afterwards
+     */
+    ChunkPayload toPayload(byte compressionType)
+    {
+        int sectorBytes = alignToSectors(count);
+        if (buffer.length - sectorBytes > sectorBytes / 4)
+        {
+            buffer = Arrays.copyOf(buffer, sectorBytes);
+        }
+        return ChunkPayload.ofFrame(compressionType, buffer, count);
+    }
+
+    /**
+     * Grows the buffer in whole sectors, at least doubling it.
+     *
+     * @param minCapacity required capacity in bytes
+     * @throws ChunkTooLargeException if the data exceeds the maximum external chunk size
+     */
+    private void ensureCapacity(long minCapacity)
+    {
+        if (minCapacity <= buffer.length)
+        {
+            return;
+        }
+        if (minCapacity > MAX_EXTERNAL_CHUNK_SIZE_BYTES)
+        {
+            throw new ChunkTooLargeException(
+                    "Compressed chunk payload exceeds maximum size. Size: " + minCapacity +
+                            " bytes, Maximum: " + MAX_EXTERNAL_CHUNK_SIZE_BYTES + " bytes"
+            );
+        }
+
+        long grown = Math.max(minCapacity, Math.min(2L * buffer.length, MAX_EXTERNAL_CHUNK_SIZE_BYTES));
+        buffer = Arrays.copyOf(buffer, alignToSectors((int) grown));
+    }
+
+    /**
+     * Rounds a size up to whole sectors.
+     *
+     * @param size size in bytes
+     * @return size in bytes, a multiple of the sector size
+     */
+    private static int alignToSectors(int size)
+    {
+        return (size + SECTOR_SIZE_BYTES - 1) / SECTOR_SIZE_BYTES * SECTOR_SIZE_BYTES;
+    }
+}
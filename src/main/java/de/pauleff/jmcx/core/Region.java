@@ -4,9 +4,9 @@ import de.pauleff.jmcx.api.IChunk;
 import de.pauleff.jmcx.api.IRegion;
 import de.pauleff.jmcx.util.AnvilUtils;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -20,10 +20,8 @@ import static de.pauleff.jmcx.util.AnvilConstants.*;
  */
 public class Region implements IRegion
 {
-    private static final int LOCATION_SIZE = 4;
-    private static final int TIMESTAMP_SIZE = 4;
-
     private final RandomAccessFile raf;
+    private final File directory;
 
     private final int x;
     private final int z;
@@ -31,18 +29,42 @@ public class Region implements IRegion
 
     /**
      * Constructs a Region object.
+     * Chunks stored in external {@code .mcc} files cannot be located without the file's path,
+     * use {@link #Region(int, int, File)} for regions that may contain them.
      *
      * @param x region x-coordinate
      * @param z region z-coordinate
      * @param anvilFile RandomAccessFile for target region file
-     * @throws IOException if I/O error occurs
+     * @throws IOException if I/O error occurs or a chunk is stored externally
      */
     public Region(int x, int z, RandomAccessFile anvilFile) throws IOException
     {
         this.x = x;
         this.z = z;
         this.raf = anvilFile;
-        this.chunks = readAllChunks();
+        this.directory = null;
+        this.chunks = readAllChunks(anvilFile);
+    }
+
+    /**
+     * Constructs a Region object from a region file.
+     * Chunks stored in external {@code .mcc} files are read from the file's directory.
+     *
+     * @param x region x-coordinate
+     * @param z region z-coordinate
+     * @param anvilFile target region file, closed again once all chunks are read
+     * @throws IOException if I/O error occurs or an external chunk file is missing
+     */
+    public Region(int x, int z, File anvilFile) throws IOException
+    {
+        this.x = x;
+        this.z = z;
+        this.raf = null;
+        this.directory = anvilFile.getAbsoluteFile().getParentFile();
+        try (RandomAccessFile file = new RandomAccessFile(anvilFile, "r"))
+        {
+            this.chunks = readAllChunks(file);
+        }
     }
 
     /**
@@ -63,6 +85,7 @@ public class Region implements IRegion
         this.x = x;
         this.z = z;
         this.raf = null;
+        this.directory = null;
         this.chunks = new ArrayList<>(CHUNKS_PER_REGION);
 
         for (IChunk chunk : chunks)
@@ -134,47 +157,61 @@ public class Region implements IRegion
     /**
      * Reads all chunks from region file.
      *
+     * @param file open region file
      * @return list of chunks
-     * @throws IOException if I/O error occurs
+     * @throws IOException if I/O error occurs or an externally stored chunk cannot be read
      */
-    private ArrayList<Chunk> readAllChunks() throws IOException
+    private ArrayList<Chunk> readAllChunks(RandomAccessFile file) throws IOException
     {
-        int locationCount = SECTOR_SIZE_BYTES / LOCATION_SIZE;
-        int timestampCount = SECTOR_SIZE_BYTES / TIMESTAMP_SIZE;
-
-        Location[] locations = new Location[locationCount];
-        int[] timestamps = new int[timestampCount];
+        RegionHeader header = RegionHeader.read(file);
 
-        for (int i = 0; i < locationCount; i++)
+        ArrayList<Chunk> chunks = new ArrayList<>(CHUNKS_PER_REGION);
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
         {
-            raf.seek(i * LOCATION_SIZE);
-            byte[] byteBuffer = new byte[4];
-            raf.read(byteBuffer);
-            locations[i] = new Location(byteBuffer);
-            raf.seek(SECTOR_SIZE_BYTES + i * TIMESTAMP_SIZE);
-            byteBuffer = new byte[4];
-            raf.read(byteBuffer);
-            timestamps[i] = AnvilUtils.readInt(byteBuffer, ByteOrder.BIG_ENDIAN);
-        }
-
-        ArrayList<Chunk> chunks = new ArrayList<>();
-        for (int i = 0; i < locationCount; i++)
-        {
-            Location currLocation = locations[i];
-            if (currLocation.getOffset() == 0 && currLocation.getSectorCount() == 0)
+            Location location = header.getLocation(i);
+            if (!header.hasChunk(i) && header.getSectorCount(i) == 0)
             {
-                chunks.add(new Chunk(i, locations[i], timestamps[i], new byte[0]));
+                chunks.add(new Chunk(i, location, header.getTimestamp(i), new byte[0]));
             } else
             {
-                raf.seek(currLocation.getOffset() * (long) SECTOR_SIZE_BYTES);
-                byte[] chunkData = new byte[currLocation.getSectorCount() * SECTOR_SIZE_BYTES];
-                raf.read(chunkData);
-                chunks.add(new Chunk(i, locations[i], timestamps[i], chunkData));
+                file.seek(header.getFilePosition(i));
+                byte[] chunkData = new byte[header.getAllocatedSize(i)];
+                file.readFully(chunkData);
+                chunks.add(new Chunk(this.x, this.z, i, location, header.getTimestamp(i), toPayload(i, chunkData)));
             }
         }
         return chunks;
     }
 
+    /**
+     * Parses the sectors of a chunk into a payload.
+     * If the compression type carries the external flag, the data is mapped from the chunk's
+     * {@code c.<chunkX>.<chunkZ>.mcc} file in the region file's directory.
+     *
+     * @param index chunk index
+     * @param chunkData all sectors of the chunk
+     * @return payload of the chunk
+     * @throws IOException if the data is corrupt or the external file cannot be read
+     */
+    private ChunkPayload toPayload(int index, byte[] chunkData) throws IOException
+    {
+        byte compressionType = chunkData.length > 4 ? chunkData[4] : 0;
+        if ((compressionType & EXTERNAL_CHUNK_FLAG) == 0)
+        {
+            return new ChunkPayload(chunkData);
+        }
+
+        int[] chunkCoordinates = AnvilUtils.calculateChunkCoordinates(this.x, this.z, index);
+        if (directory == null)
+        {
+            throw new IOException(
+                    String.format("Chunk %d is stored externally, but the region file's directory is unknown", index));
+        }
+
+        File externalFile = new File(directory, AnvilUtils.generateExternalChunkFilename(chunkCoordinates[0], chunkCoordinates[1]));
+        return ChunkPayload.mapExternal(compressionType, externalFile);
+    }
+
     /**
      * Gets the chunk at the specified coordinates if it exists and belongs to this region.
      *
@@ -0,0 +1,398 @@
+package de.pauleff.jmcx.core;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static de.pauleff.jmcx.util.AnvilConstants.CHUNKS_PER_REGION;
+import static de.pauleff.jmcx.util.AnvilConstants.SECTOR_SIZE_BYTES;
+
+/**
+ * Immutable, decoded view of the 8KiB header of an Anvil region file.
+ * Holds sector offsets, sector counts and timestamps of all chunks as primitive tables,
+ * so header-only questions can be answered without touching chunk data.
+ *
+ * @author Paul Ferlitz
+ */
+public final class RegionHeader
+{
+    /**
+     * Size of the header in bytes (location table + timestamp table).
+     */
+    public static final int HEADER_SIZE_BYTES = SECTOR_SIZE_BYTES * 2;
+
+    /**
+     * Number of sectors occupied by the header.
+     */
+    public static final int HEADER_SECTORS = 2;
+
+    private static final int MAX_SECTOR_OFFSET = 0xFFFFFF;
+    private static final int MAX_SECTOR_COUNT = 0xFF;
+
+    private final int[] offsets;
+    private final int[] sectorCounts;
+    private final int[] timestamps;
+
+    private RegionHeader(int[] offsets, int[] sectorCounts, int[] timestamps)
+    {
+        this.offsets = offsets;
+        this.sectorCounts = sectorCounts;
+        this.timestamps = timestamps;
+    }
+
+    /**
+     * Creates a header without any chunks.
+     *
+     * @return empty {@link RegionHeader}
+     */
+    public static RegionHeader empty()
+    {
+        return new RegionHeader(new int[CHUNKS_PER_REGION], new int[CHUNKS_PER_REGION], new int[CHUNKS_PER_REGION]);
+    }
+
+    /**
+     * Creates a header from the given tables. The arrays are copied.
+     *
+     * @param offsets      sector offsets of all chunks
+     * @param sectorCounts sector counts of all chunks
+     * @param timestamps   timestamps of all chunks
+     * @return new {@link RegionHeader}
+     * @throws IllegalArgumentException if a table has the wrong size or an entry exceeds the format limits
+     */
+    public static RegionHeader of(int[] offsets, int[] sectorCounts, int[] timestamps)
+    {
+        if (offsets.length != CHUNKS_PER_REGION || sectorCounts.length != CHUNKS_PER_REGION || timestamps.length != CHUNKS_PER_REGION)
+        {
+            throw new IllegalArgumentException("Header tables must contain exactly " + CHUNKS_PER_REGION + " entries");
+        }
+
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            checkEntry(offsets[i], sectorCounts[i]);
+        }
+
+        return new RegionHeader(offsets.clone(), sectorCounts.clone(), timestamps.clone());
+    }
+
+    /**
+     * Decodes a header from a buffer holding at least {@link #HEADER_SIZE_BYTES} bytes from its position.
+     * The buffer's position is not modified. No semantic validation is performed.
+     *
+     * @param header buffer containing the raw header bytes (big-endian)
+     * @return decoded {@link RegionHeader}
+     * @throws IOException if the buffer is too small
+     */
+    public static RegionHeader parse(ByteBuffer header) throws IOException
+    {
+        if (header.remaining() < HEADER_SIZE_BYTES)
+        {
+            throw new IOException(
+                    String.format("Region header too small: expected %d bytes, got %d",
+                            HEADER_SIZE_BYTES, header.remaining()));
+        }
+
+        int start = header.position();
+        int[] offsets = new int[CHUNKS_PER_REGION];
+        int[] sectorCounts = new int[CHUNKS_PER_REGION];
+        int[] timestamps = new int[CHUNKS_PER_REGION];
+
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            int location = header.getInt(start + i * 4);
+            offsets[i] = location >>> 8;
+            sectorCounts[i] = location & 0xFF;
+            timestamps[i] = header.getInt(start + SECTOR_SIZE_BYTES + i * 4);
+        }
+
+        return new RegionHeader(offsets, sectorCounts, timestamps);
+    }
+
+    /**
+     * Reads and decodes the header of a region file with a single bulk read.
+     *
+     * @param raf {@link RandomAccessFile} of the region file
+     * @return decoded {@link RegionHeader}
+     * @throws IOException if the file is shorter than the header or reading fails
+     */
+    public static RegionHeader read(RandomAccessFile raf) throws IOException
+    {
+        byte[] header = new byte[HEADER_SIZE_BYTES];
+        raf.seek(0);
+        raf.readFully(header);
+        return parse(ByteBuffer.wrap(header));
+    }
+
+    /**
+     * Returns a copy of this header with one chunk entry replaced.
+     *
+     * @param index       chunk index (0-1023)
+     * @param offset      new sector offset
+     * @param sectorCount new sector count
+     * @param timestamp   new timestamp
+     * @return updated {@link RegionHeader}
+     * @throws IllegalArgumentException if index or entry are out of range
+     */
+    public RegionHeader withEntry(int index, int offset, int sectorCount, int timestamp)
+    {
+        checkIndex(index);
+        checkEntry(offset, sectorCount);
+
+        RegionHeader copy = new RegionHeader(offsets.clone(), sectorCounts.clone(), timestamps.clone());
+        copy.offsets[index] = offset;
+        copy.sectorCounts[index] = sectorCount;
+        copy.timestamps[index] = timestamp;
+        return copy;
+    }
+
+    /**
+     * Encodes this header into its on-disk representation.
+     *
+     * @return new buffer of {@link #HEADER_SIZE_BYTES} bytes, ready to be written
+     */
+    public ByteBuffer toByteBuffer()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE_BYTES);
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            buffer.putInt(i * 4, (offsets[i] << 8) | sectorCounts[i]);
+            buffer.putInt(SECTOR_SIZE_BYTES + i * 4, timestamps[i]);
+        }
+        return buffer;
+    }
+
+    /**
+     * Gets sector offset of a chunk.
+     *
+     * @param index chunk index (0-1023)
+     * @return offset in sectors, 0 if chunk not present
+     */
+    public int getOffset(int index)
+    {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+     * Gets sector count of a chunk.
+     *
+     * @param index chunk index (0-1023)
+     * @return number of allocated sectors
+     */
+    public int getSectorCount(int index)
+    {
+        checkIndex(index);
+        return sectorCounts[index];
+    }
+
+    /**
+     * Gets timestamp of a chunk.
+     *
+     * @param index chunk index (0-1023)
+     * @return timestamp (seconds since Unix epoch)
+     */
+    public int getTimestamp(int index)
+    {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    /**
+     * Gets {@link Location} of a chunk.
+     *
+     * @param index chunk index (0-1023)
+     * @return new {@link Location} for the chunk
+     */
+    public Location getLocation(int index)
+    {
+        checkIndex(index);
+        return new Location(offsets[index], sectorCounts[index]);
+    }
+
+    /**
+     * Gets absolute file position of a chunk's first sector.
+     *
+     * @param index chunk index (0-1023)
+     * @return file position in bytes
+     */
+    public long getFilePosition(int index)
+    {
+        checkIndex(index);
+        return (long) offsets[index] * SECTOR_SIZE_BYTES;
+    }
+
+    /**
+     * Gets the number of bytes allocated for a chunk in the file.
+     *
+     * @param index chunk index (0-1023)
+     * @return allocated size in bytes (sector count * sector size)
+     */
+    public int getAllocatedSize(int index)
+    {
+        checkIndex(index);
+        return sectorCounts[index] * SECTOR_SIZE_BYTES;
+    }
+
+    /**
+     * Checks whether a chunk is present in the region.
+     *
+     * @param index chunk index (0-1023)
+     * @return true if the chunk has been stored
+     */
+    public boolean hasChunk(int index)
+    {
+        checkIndex(index);
+        return offsets[index] != 0;
+    }
+
+    /**
+     * Counts chunks present in the region.
+     *
+     * @return number of present chunks
+     */
+    public int getChunkCount()
+    {
+        int count = 0;
+        for (int offset : offsets)
+        {
+            if (offset != 0)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets indices of all present chunks in ascending order.
+     *
+     * @return array of chunk indices
+     */
+    public int[] getChunkIndices()
+    {
+        int[] indices = new int[getChunkCount()];
+        int n = 0;
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            if (offsets[i] != 0)
+            {
+                indices[n++] = i;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Gets the end of the furthest chunk, i.e. the minimal file length in sectors needed by this header.
+     *
+     * @return sector index after the last allocated sector
+     */
+    public int getEndSector()
+    {
+        int end = HEADER_SECTORS;
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            if (offsets[i] != 0)
+            {
+                end = Math.max(end, offsets[i] + sectorCounts[i]);
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Gets the most recent chunk timestamp.
+     *
+     * @return newest timestamp, 0 if no chunk present
+     */
+    public int getLatestTimestamp()
+    {
+        int latest = 0;
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            if (offsets[i] != 0)
+            {
+                latest = Math.max(latest, timestamps[i]);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Validates chunk index is within region bounds.
+     *
+     * @param index chunk index
+     * @throws IllegalArgumentException if index out of range
+     */
+    private static void checkIndex(int index)
+    {
+        if (index < 0 || index >= CHUNKS_PER_REGION)
+        {
+            throw new IllegalArgumentException(
+                    String.format("Chunk index %d is out of range (0-%d)", index, CHUNKS_PER_REGION - 1));
+        }
+    }
+
+    /**
+     * Validates entry fits the 3-byte offset and 1-byte sector count fields.
+     *
+     * @param offset      sector offset
+     * @param sectorCount sector count
+     * @throws IllegalArgumentException if values out of range
+     */
+    private static void checkEntry(int offset, int sectorCount)
+    {
+        if (offset < 0 || offset > MAX_SECTOR_OFFSET)
+        {
+            throw new IllegalArgumentException("Sector offset out of range: " + offset);
+        }
+        if (sectorCount < 0 || sectorCount > MAX_SECTOR_COUNT)
+        {
+            throw new IllegalArgumentException("Sector count out of range: " + sectorCount);
+        }
+    }
+
+    /**
+     * Returns string representation of RegionHeader.
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString()
+    {
+        return "RegionHeader{" +
+                "chunks=" + getChunkCount() +
+                ", endSector=" + getEndSector() +
+                ", latestTimestamp=" + getLatestTimestamp() +
+                '}';
+    }
+
+    /**
+     * Checks equality of all header entries.
+     *
+     * @param o other object
+     * @return true if all entries are equal
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof RegionHeader other)) return false;
+        return Arrays.equals(offsets, other.offsets) &&
+                Arrays.equals(sectorCounts, other.sectorCounts) &&
+                Arrays.equals(timestamps, other.timestamps);
+    }
+
+    /**
+     * Computes hash code over all header entries.
+     *
+     * @return hash code
+     */
+    @Override
+    public int hashCode()
+    {
+        int result = Arrays.hashCode(offsets);
+        result = 31 * result + Arrays.hashCode(sectorCounts);
+        return 31 * result + Arrays.hashCode(timestamps);
+    }
+}
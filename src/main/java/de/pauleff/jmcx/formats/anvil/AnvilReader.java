@@ -4,49 +4,92 @@ import de.pauleff.jmcx.api.IAnvilReader;
 import de.pauleff.jmcx.api.IChunk;
 import de.pauleff.jmcx.api.IRegion;
 import de.pauleff.jmcx.core.Chunk;
+import de.pauleff.jmcx.core.ChunkDataSource;
+import de.pauleff.jmcx.core.ChunkOrigin;
+import de.pauleff.jmcx.core.ChunkPayload;
+import de.pauleff.jmcx.core.FileStamp;
 import de.pauleff.jmcx.core.Location;
 import de.pauleff.jmcx.core.Region;
+import de.pauleff.jmcx.core.RegionHeader;
 import de.pauleff.jmcx.exceptions.ChunkTooLargeException;
 import de.pauleff.jmcx.formats.FileFormat;
 import de.pauleff.jmcx.util.AnvilUtils;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteOrder;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static de.pauleff.jmcx.util.AnvilConstants.*;
 
 /**
  * Implementation of {@link IAnvilReader} for reading Anvil region files.
+ * The header is parsed once when the reader is opened and shared by all reads.
+ * {@link #readChunk(int, int)} may be called concurrently; with {@link ReadMode#POSITIONAL} or
+ * {@link ReadMode#MEMORY_MAPPED} such reads also proceed in parallel.
  *
  * @author Paul Ferlitz
  */
 public class AnvilReader implements IAnvilReader
 {
-    private static final int HEADER_SIZE = SECTOR_SIZE_BYTES + SECTOR_SIZE_BYTES;
-    private static final int LOCATION_ENTRY_SIZE = 4;
-    private static final int TIMESTAMP_ENTRY_SIZE = 4;
-    private static final int MINIMUM_SECTOR_OFFSET = 2;
+    private static final int HEADER_SIZE = RegionHeader.HEADER_SIZE_BYTES;
+    private static final int MINIMUM_SECTOR_OFFSET = RegionHeader.HEADER_SECTORS;
+    private static final long MAX_FUTURE_TIMESTAMP_SECONDS = 100L * 365 * 24 * 60 * 60; // 100 years
+    private static final int MAX_COALESCED_READ_BYTES = 4 * 1024 * 1024; // 4MiB
+    private static final int MAX_COALESCE_GAP_SECTORS = 16; // Reading a 64KiB hole is cheaper than a seek
 
     private final File anvilFile;
-    private final RandomAccessFile raf;
+    private final ReadMode readMode;
+    private final RegionSource source;
+    private final RegionHeader header;
+    private final int[] regionCoordinates;
+    private final FileStamp stamp;
 
     /**
-     * Constructs an AnvilReader object.
+     * Constructs an AnvilReader object using {@link ReadMode#RANDOM_ACCESS}.
      *
      * @param anvilFile the Anvil file to read
      * @throws IOException if I/O error occurs or file format unsupported
      */
     public AnvilReader(File anvilFile) throws IOException
+    {
+        this(anvilFile, ReadMode.RANDOM_ACCESS);
+    }
+
+    /**
+     * Constructs an AnvilReader object using the given read mode.
+     *
+     * @param anvilFile the Anvil file to read
+     * @param readMode  the {@link ReadMode} used to access the file
+     * @throws IOException if I/O error occurs or file format unsupported
+     */
+    public AnvilReader(File anvilFile, ReadMode readMode) throws IOException
     {
         validateFileFormat(anvilFile);
         this.anvilFile = anvilFile;
-        this.raf = new RandomAccessFile(anvilFile, "r");
-        validateMcaHeader();
+        this.readMode = readMode;
+        this.regionCoordinates = tryParseRegionCoordinates(anvilFile.getName());
+        this.source = RegionSource.open(anvilFile, readMode);
+        try
+        {
+            this.stamp = FileStamp.of(anvilFile);
+            validateMcaHeader();
+            this.header = RegionHeader.parse(source.read(0, HEADER_SIZE));
+        } catch (IOException e)
+        {
+            source.close();
+            throw e;
+        }
     }
 
     /**
@@ -61,13 +104,89 @@ public class AnvilReader implements IAnvilReader
         try
         {
             int[] coordinates = parseFilenameToCoordinates(anvilFile.getName());
-            return readRegionWithValidation(coordinates[0], coordinates[1]);
+            return readRegionWithValidation(coordinates[0], coordinates[1], Runnable::run, false);
+        } finally
+        {
+            source.close();
+        }
+    }
+
+    /**
+     * Reads the complete region from file, decoding chunks in parallel.
+     * Sectors are read in one sequential pass, decompression and NBT parsing run on the executor,
+     * so the returned chunks already hold their {@link IChunk#getNBTData()}.
+     * Chunks failing to parse are handled like the corrupt chunks of {@link #readRegion()}.
+     *
+     * @param executor executor decoding the chunks, e.g. a {@link java.util.concurrent.ForkJoinPool}
+     * @return {@link IRegion} representing the region
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public IRegion readRegion(Executor executor) throws IOException
+    {
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+
+        try
+        {
+            int[] coordinates = parseFilenameToCoordinates(anvilFile.getName());
+            return readRegionWithValidation(coordinates[0], coordinates[1], executor, true);
         } finally
         {
-            raf.close();
+            source.close();
         }
     }
 
+    /**
+     * Reads the region lazily, evaluating only the already parsed header.
+     * Chunk sectors are read on first access, decompression and parsing happen on first {@link IChunk#getNBTData()}.
+     * The reader must stay open as long as chunk data of the returned region is accessed.
+     *
+     * @return {@link IRegion} backed by this reader
+     * @throws IOException if header validation fails
+     */
+    @Override
+    public IRegion readRegionLazily() throws IOException
+    {
+        validateHeaderEntries();
+
+        int[] coordinates = parseFilenameToCoordinates(anvilFile.getName());
+        List<IChunk> chunks = new ArrayList<>(CHUNKS_PER_REGION);
+
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            if (header.hasChunk(i))
+            {
+                Location sourceLocation = header.getLocation(i);
+                int chunkIndex = i;
+                Chunk chunk = new Chunk(coordinates[0], coordinates[1], i, header.getLocation(i), header.getTimestamp(i),
+                        new ChunkDataSource()
+                        {
+                            @Override
+                            public ByteBuffer load() throws IOException
+                            {
+                                return readAndValidateChunkData(sourceLocation);
+                            }
+
+                            @Override
+                            public ChunkPayload loadPayload() throws IOException
+                            {
+                                return toPayload(chunkIndex, load());
+                            }
+                        });
+                chunk.markStored(originOf(sourceLocation));
+                chunks.add(chunk);
+            } else
+            {
+                chunks.add(new Chunk(i, Location.createEmptyLocation(), 0, new byte[0]));
+            }
+        }
+
+        return new Region(coordinates[0], coordinates[1], chunks);
+    }
+
     /**
      * Reads a specific chunk from the region.
      *
@@ -79,40 +198,121 @@ public class AnvilReader implements IAnvilReader
     @Override
     public Optional<IChunk> readChunk(int chunkX, int chunkZ) throws IOException
     {
+        int chunkIndex = AnvilUtils.chunkCoordinatesToIndex(chunkX, chunkZ);
+
+        validateLocation(chunkIndex, source.size());
+        return readChunkAtIndex(chunkIndex);
+    }
+
+    /**
+     * Streams all stored chunks of the region in index order, reading and decoding one chunk at a time.
+     * Empty slots are skipped using the header, corrupt chunks are skipped with a warning.
+     * The stream supports {@link Stream#parallel()} and must be consumed before the reader is closed.
+     *
+     * @return {@link Stream} of stored chunks
+     * @throws IOException if header validation fails
+     */
+    @Override
+    public Stream<IChunk> streamChunks() throws IOException
+    {
+        validateHeaderEntries();
+        return StreamSupport.stream(new ChunkSpliterator(this, header.getChunkIndices()), false);
+    }
+
+    /**
+     * Reads the chunk at the given index, whose header entry must have been validated.
+     *
+     * @param chunkIndex chunk index (0-1023)
+     * @return {@link IChunk} if stored and intact, empty otherwise
+     * @throws IOException if I/O error occurs
+     */
+    Optional<IChunk> readChunkAtIndex(int chunkIndex) throws IOException
+    {
+        Location location = header.getLocation(chunkIndex);
+        int timestamp = header.getTimestamp(chunkIndex);
+
+        if (location.getOffset() == 0)
+        {
+            return Optional.empty();
+        }
+
         try
         {
-            int chunkIndex = AnvilUtils.chunkCoordinatesToIndex(chunkX, chunkZ);
+            ByteBuffer chunkData = readAndValidateChunkData(location);
+            Chunk chunk = regionCoordinates != null
+                    ? new Chunk(regionCoordinates[0], regionCoordinates[1], chunkIndex, location, timestamp, toPayload(chunkIndex, chunkData))
+                    : new Chunk(chunkIndex, location, timestamp, chunkData);
+            chunk.markStored(originOf(location));
+            return Optional.of(chunk);
+        } catch (IOException | ChunkTooLargeException corruptionException)
+        {
+            int[] chunkCoordinates = regionCoordinates != null
+                    ? AnvilUtils.calculateChunkCoordinates(regionCoordinates[0], regionCoordinates[1], chunkIndex)
+                    : new int[]{chunkIndex % CHUNKS_PER_REGION_SIDE, chunkIndex / CHUNKS_PER_REGION_SIDE};
+            System.err.printf("Warning: Corrupt chunk at coordinates (%d,%d), index %d: %s%n",
+                    chunkCoordinates[0], chunkCoordinates[1], chunkIndex, corruptionException.getMessage());
+            System.err.printf("  Location: offset=%d, sectorCount=%d, timestamp=%d%n",
+                    location.getOffset(), location.getSectorCount(), timestamp);
+
+            return Optional.empty();
+        }
+    }
 
-            Location location = readChunkLocation(chunkIndex);
-            int timestamp = readChunkTimestamp(chunkIndex);
+    /**
+     * Reads the raw payload at the given index without decoding any NBT.
+     * The header entry must have been validated and must not be empty. External chunks are mapped from their .mcc file.
+     *
+     * @param chunkIndex chunk index (0-1023)
+     * @return payload of the chunk
+     * @throws IOException if reading fails or the chunk data is corrupt
+     * @throws ChunkTooLargeException if the chunk exceeds the maximum size
+     */
+    ChunkPayload readPayloadAtIndex(int chunkIndex) throws IOException
+    {
+        return toPayload(chunkIndex, readAndValidateChunkData(header.getLocation(chunkIndex)));
+    }
 
-            if (location.getOffset() == 0)
-            {
-                return Optional.empty();
-            }
+    /**
+     * Gets the origin of a chunk stored at the given location of this reader's file.
+     *
+     * @param location non-empty location from the header
+     * @return {@link ChunkOrigin} of the chunk's sectors
+     */
+    private ChunkOrigin originOf(Location location)
+    {
+        return new ChunkOrigin(anvilFile, stamp, location.getOffset(), location.getSectorCount());
+    }
 
-            try
-            {
-                byte[] chunkData = readAndValidateChunkData(location);
-                Chunk chunk = new Chunk(chunkIndex, location, timestamp, chunkData);
-                return Optional.of(chunk);
-            } catch (IOException | RuntimeException corruptionException)
-            {
-                System.err.printf("Warning: Corrupt chunk at coordinates (%d,%d), index %d: %s%n",
-                        chunkX, chunkZ, chunkIndex, corruptionException.getMessage());
-                System.err.printf("  Location: offset=%d, sectorCount=%d, timestamp=%d%n",
-                        location.getOffset(), location.getSectorCount(), timestamp);
+    /**
+     * Parses validated chunk data into a payload.
+     * If the compression type carries the external flag, the data is mapped from the chunk's
+     * {@code c.<chunkX>.<chunkZ>.mcc} file next to the region file instead of being read into memory.
+     *
+     * @param chunkIndex chunk index (0-1023)
+     * @param chunkData validated chunk data
+     * @return payload of the chunk
+     * @throws IOException if the data is corrupt or the external file cannot be read
+     */
+    private ChunkPayload toPayload(int chunkIndex, ByteBuffer chunkData) throws IOException
+    {
+        byte compressionType = chunkData.get(chunkData.position() + 4);
+        if ((compressionType & EXTERNAL_CHUNK_FLAG) == 0)
+        {
+            return new ChunkPayload(chunkData);
+        }
 
-                return Optional.empty();
-            }
-        } catch (Exception e)
+        if (regionCoordinates == null)
         {
             throw new IOException(
-                    String.format("Critical failure reading chunk at coordinates (%d,%d): %s",
-                            chunkX, chunkZ, e.getMessage()), e);
+                    String.format("Chunk %d is stored externally, but its coordinates cannot be derived from filename %s",
+                            chunkIndex, anvilFile.getName())
+            );
         }
-    }
 
+        int[] chunkCoordinates = AnvilUtils.calculateChunkCoordinates(regionCoordinates[0], regionCoordinates[1], chunkIndex);
+        File externalFile = ExternalChunkFile.of(anvilFile, chunkCoordinates[0], chunkCoordinates[1]);
+        return ChunkPayload.mapExternal(compressionType, externalFile);
+    }
 
     /**
      * Gets region coordinates from filename.
@@ -158,6 +358,27 @@ public class AnvilReader implements IAnvilReader
         return anvilFile.length();
     }
 
+    /**
+     * Gets the region header parsed when the reader was opened.
+     *
+     * @return {@link RegionHeader} of the file
+     */
+    @Override
+    public RegionHeader getHeader()
+    {
+        return header;
+    }
+
+    /**
+     * Gets the read mode used to access the file.
+     *
+     * @return {@link ReadMode} of this reader
+     */
+    public ReadMode getReadMode()
+    {
+        return readMode;
+    }
+
     /**
      * Closes the file reader.
      *
@@ -166,9 +387,9 @@ public class AnvilReader implements IAnvilReader
     @Override
     public void close() throws IOException
     {
-        if (raf != null)
+        if (source != null)
         {
-            raf.close();
+            source.close();
         }
     }
 
@@ -179,7 +400,7 @@ public class AnvilReader implements IAnvilReader
      */
     private void validateMcaHeader() throws IOException
     {
-        long fileSize = raf.length();
+        long fileSize = source.size();
 
         if (fileSize < HEADER_SIZE)
         {
@@ -210,54 +431,117 @@ public class AnvilReader implements IAnvilReader
 
     /**
      * Reads the region with comprehensive validation of all chunks.
+     * Stored chunks are read on the calling thread in file order, merging nearby sectors into large reads
+     * that are split into per-chunk payloads. Decoding each chunk is handed to the executor.
      *
      * @param regionX the X coordinate of the region
      * @param regionZ the Z coordinate of the region
+     * @param executor executor decoding the chunks, {@code Runnable::run} decodes inline
+     * @param parseNBT whether the NBT data is parsed during decoding instead of on first access
      * @return the validated Region object
      * @throws IOException if reading or validation fails
      */
-    private IRegion readRegionWithValidation(int regionX, int regionZ) throws IOException
+    private IRegion readRegionWithValidation(int regionX, int regionZ, Executor executor, boolean parseNBT) throws IOException
     {
-        Location[] locations = readAndValidateLocationTable();
-
-        int[] timestamps = readTimestampTable();
+        validateHeaderEntries();
 
-        java.util.List<IChunk> chunks = new java.util.ArrayList<>(CHUNKS_PER_REGION);
+        List<CompletableFuture<Chunk>> decodedChunks = new ArrayList<>(CHUNKS_PER_REGION);
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            decodedChunks.add(header.hasChunk(i)
+                    ? null
+                    : CompletableFuture.completedFuture(new Chunk(i, Location.createEmptyLocation(), 0, new byte[0])));
+        }
 
-        int corruptChunkCount = 0;
+        long[] chunksByOffset = sortChunksByOffset();
+        int runStart = 0;
 
-        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        while (runStart < chunksByOffset.length)
         {
-            Location location = locations[i];
-            int timestamp = timestamps[i];
+            int runEnd = findCoalescedRunEnd(chunksByOffset, runStart);
+            int firstSector = header.getOffset(chunkIndexOf(chunksByOffset[runStart]));
+            int endSector = firstSector;
+            for (int k = runStart; k < runEnd; k++)
+            {
+                int chunkIndex = chunkIndexOf(chunksByOffset[k]);
+                endSector = Math.max(endSector, header.getOffset(chunkIndex) + header.getSectorCount(chunkIndex));
+            }
 
-            if (location.getOffset() == 0)
+            ByteBuffer runData = null;
+            IOException runFailure = null;
+            try
             {
-                chunks.add(new Chunk(i, Location.createEmptyLocation(), 0, new byte[0]));
-            } else
+                runData = source.read((long) firstSector * SECTOR_SIZE_BYTES, (endSector - firstSector) * SECTOR_SIZE_BYTES);
+            } catch (IOException e)
+            {
+                runFailure = e;
+            }
+
+            for (int k = runStart; k < runEnd; k++)
             {
+                int chunkIndex = chunkIndexOf(chunksByOffset[k]);
+                Location location = header.getLocation(chunkIndex);
+                int timestamp = header.getTimestamp(chunkIndex);
+
+                ByteBuffer chunkData;
                 try
                 {
-                    byte[] chunkData = readAndValidateChunkData(location);
-                    chunks.add(new Chunk(i, location, timestamp, chunkData));
+                    if (runFailure != null)
+                    {
+                        throw runFailure;
+                    }
+                    ByteBuffer sectorData = runData.slice((location.getOffset() - firstSector) * SECTOR_SIZE_BYTES,
+                            location.getSectorCount() * SECTOR_SIZE_BYTES);
+                    chunkData = validateChunkData(sectorData, location);
                 } catch (IOException | RuntimeException e)
                 {
-                    corruptChunkCount++;
-                    int chunkX = regionX * 32 + (i % 32);
-                    int chunkZ = regionZ * 32 + (i / 32);
+                    decodedChunks.set(chunkIndex, CompletableFuture.failedFuture(e));
+                    continue;
+                }
 
-                    System.err.printf("Warning: Corrupt chunk at index %d (chunk coordinates %d,%d): %s%n",
-                            i, chunkX, chunkZ, e.getMessage());
+                decodedChunks.set(chunkIndex, CompletableFuture.supplyAsync(
+                        () -> decodeChunk(regionX, regionZ, chunkIndex, location, timestamp, chunkData, parseNBT), executor));
+            }
 
-                    chunks.add(new Chunk(i, Location.createEmptyLocation(), 0, new byte[0]));
+            runStart = runEnd;
+        }
 
-                    System.err.printf("  Location: offset=%d, sectorCount=%d%n",
-                            location.getOffset(), location.getSectorCount());
-                    System.err.printf("  Timestamp: %d%n", timestamp);
-                    if (e.getCause() != null)
-                    {
-                        System.err.printf("  Root cause: %s%n", e.getCause().getMessage());
-                    }
+        List<IChunk> chunks = new ArrayList<>(CHUNKS_PER_REGION);
+
+        int corruptChunkCount = 0;
+
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            try
+            {
+                chunks.add(decodedChunks.get(i).join());
+            } catch (CompletionException completionException)
+            {
+                Throwable e = completionException.getCause();
+                if (e instanceof UncheckedIOException uncheckedException)
+                {
+                    e = uncheckedException.getCause();
+                }
+                if (!(e instanceof IOException) && !(e instanceof RuntimeException))
+                {
+                    throw completionException;
+                }
+
+                corruptChunkCount++;
+                int chunkX = regionX * 32 + (i % 32);
+                int chunkZ = regionZ * 32 + (i / 32);
+
+                System.err.printf("Warning: Corrupt chunk at index %d (chunk coordinates %d,%d): %s%n",
+                        i, chunkX, chunkZ, e.getMessage());
+
+                chunks.add(new Chunk(i, Location.createEmptyLocation(), 0, new byte[0]));
+
+                System.err.printf("  Location: offset=%d, sectorCount=%d%n",
+                        header.getOffset(i), header.getSectorCount(i));
+                System.err.printf("  Timestamp: %d%n", header.getTimestamp(i));
+                if (e.getCause() != null)
+                {
+                    System.err.printf("  Root cause: %s%n", e.getCause().getMessage());
                 }
             }
         }
@@ -272,54 +556,126 @@ public class AnvilReader implements IAnvilReader
     }
 
     /**
-     * Reads and validates the location table from the MCA file header.
+     * Sorts all stored chunks by their sector offset, so they can be read in file order.
+     * Each entry packs the sector offset into the upper and the chunk index into the lower bits.
      *
-     * @return array of Location objects for all CHUNKS_PER_REGION chunks
-     * @throws IOException if reading or validation fails
+     * @return sorted packed entries, decode with {@link #chunkIndexOf(long)}
+     */
+    private long[] sortChunksByOffset()
+    {
+        int[] chunkIndices = header.getChunkIndices();
+        long[] chunksByOffset = new long[chunkIndices.length];
+        for (int i = 0; i < chunkIndices.length; i++)
+        {
+            chunksByOffset[i] = ((long) header.getOffset(chunkIndices[i]) << 32) | chunkIndices[i];
+        }
+        Arrays.sort(chunksByOffset);
+        return chunksByOffset;
+    }
+
+    /**
+     * Extracts the chunk index from a packed entry of {@link #sortChunksByOffset()}.
+     *
+     * @param packedEntry packed offset and index
+     * @return chunk index
      */
-    private Location[] readAndValidateLocationTable() throws IOException
+    private static int chunkIndexOf(long packedEntry)
     {
-        Location[] locations = new Location[CHUNKS_PER_REGION];
-        long fileSize = raf.length();
+        return (int) packedEntry;
+    }
 
-        raf.seek(0);
+    /**
+     * Finds how many offset-sorted chunks can be fetched with a single read starting at {@code runStart}.
+     * Chunks are merged while the gap to the previous chunk is small and the read stays below the size limit.
+     *
+     * @param chunksByOffset chunks sorted by offset
+     * @param runStart       position of the first chunk of the run
+     * @return exclusive end position of the run
+     */
+    private int findCoalescedRunEnd(long[] chunksByOffset, int runStart)
+    {
+        int firstSector = header.getOffset(chunkIndexOf(chunksByOffset[runStart]));
+        int endSector = firstSector + header.getSectorCount(chunkIndexOf(chunksByOffset[runStart]));
+        int runEnd = runStart + 1;
 
-        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        while (runEnd < chunksByOffset.length)
         {
-            byte[] locationBytes = new byte[LOCATION_ENTRY_SIZE];
-            int bytesRead = raf.read(locationBytes);
+            int chunkIndex = chunkIndexOf(chunksByOffset[runEnd]);
+            int offset = header.getOffset(chunkIndex);
+            int newEndSector = Math.max(endSector, offset + header.getSectorCount(chunkIndex));
 
-            if (bytesRead != LOCATION_ENTRY_SIZE)
+            if (offset - endSector > MAX_COALESCE_GAP_SECTORS ||
+                    (long) (newEndSector - firstSector) * SECTOR_SIZE_BYTES > MAX_COALESCED_READ_BYTES)
             {
-                throw new IOException(
-                        String.format("Failed to read location entry %d: expected %d bytes, got %d",
-                                i, LOCATION_ENTRY_SIZE, bytesRead)
-                );
+                break;
             }
 
-            Location location = parseAndValidateLocation(locationBytes, i, fileSize);
-            locations[i] = location;
+            endSector = newEndSector;
+            runEnd++;
         }
 
-        return locations;
+        return runEnd;
     }
 
     /**
-     * Parses and validates a single location entry.
+     * Decodes a chunk from its already read sector data.
      *
-     * @param locationBytes the 4-byte location entry
-     * @param chunkIndex    the chunk index for error reporting
-     * @param fileSize      the total file size for bounds checking
-     * @return validated Location object
-     * @throws IOException if validation fails
+     * @param regionX   the X coordinate of the region
+     * @param regionZ   the Z coordinate of the region
+     * @param index     the chunk index
+     * @param location  the chunk's location
+     * @param timestamp the chunk's timestamp
+     * @param chunkData the validated sector data
+     * @param parseNBT  whether to decompress and parse the full NBT data as well
+     * @return decoded {@link Chunk}
+     * @throws UncheckedIOException if decoding fails
      */
-    private Location parseAndValidateLocation(byte[] locationBytes, int chunkIndex, long fileSize) throws IOException
+    private Chunk decodeChunk(int regionX, int regionZ, int index, Location location, int timestamp, ByteBuffer chunkData,
+                              boolean parseNBT)
     {
-        byte[] offsetBytes = Arrays.copyOfRange(locationBytes, 0, 3);
-        byte[] sectorCountBytes = Arrays.copyOfRange(locationBytes, 3, 4);
+        try
+        {
+            Chunk chunk = new Chunk(regionX, regionZ, index, location, timestamp, toPayload(index, chunkData));
+            if (parseNBT)
+            {
+                chunk.getNBTData();
+            }
+            chunk.markStored(originOf(location));
+            return chunk;
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        int offset = AnvilUtils.readInt(offsetBytes, ByteOrder.BIG_ENDIAN);
-        int sectorCount = AnvilUtils.readInt(sectorCountBytes, ByteOrder.BIG_ENDIAN);
+    /**
+     * Validates all location and timestamp entries of the parsed header.
+     *
+     * @throws IOException if an entry is invalid or I/O error occurs
+     */
+    void validateHeaderEntries() throws IOException
+    {
+        long fileSize = source.size();
+        long maxFutureEpoch = Instant.now().getEpochSecond() + MAX_FUTURE_TIMESTAMP_SECONDS;
+
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            validateLocation(i, fileSize);
+            validateTimestamp(i, maxFutureEpoch);
+        }
+    }
+
+    /**
+     * Validates a single location entry of the parsed header.
+     *
+     * @param chunkIndex the chunk index of the entry
+     * @param fileSize   the total file size for bounds checking
+     * @throws IOException if validation fails
+     */
+    private void validateLocation(int chunkIndex, long fileSize) throws IOException
+    {
+        int offset = header.getOffset(chunkIndex);
+        int sectorCount = header.getSectorCount(chunkIndex);
 
         if (offset != 0)
         {
@@ -339,14 +695,6 @@ public class AnvilReader implements IAnvilReader
                 );
             }
 
-            if (offset > 0xFFFFFF) // 24-bit limit
-            {
-                throw new IOException(
-                        String.format("Invalid chunk %d: sector offset %d exceeds 24-bit limit %d (MCA format constraint)",
-                                chunkIndex, offset, 0xFFFFFF)
-                );
-            }
-
             if (!AnvilUtils.isValidChunkPlacement(offset, sectorCount, fileSize))
             {
                 throw new IOException(
@@ -354,15 +702,6 @@ public class AnvilReader implements IAnvilReader
                                 chunkIndex, offset, sectorCount, fileSize)
                 );
             }
-
-            long chunkStart = (long) offset * SECTOR_SIZE_BYTES;
-            if (chunkStart % SECTOR_SIZE_BYTES != 0)
-            {
-                throw new IOException(
-                        String.format("Invalid chunk %d: start position %d is not sector-aligned",
-                                chunkIndex, chunkStart)
-                );
-            }
         } else if (sectorCount != 0)
         {
             throw new IOException(
@@ -370,157 +709,69 @@ public class AnvilReader implements IAnvilReader
                             chunkIndex, sectorCount)
             );
         }
-
-        return new Location(locationBytes);
     }
 
     /**
-     * Reads the timestamp table from the MCA file header.
+     * Validates a single timestamp entry of the parsed header.
      *
-     * @return array of timestamps for all CHUNKS_PER_REGION chunks
-     * @throws IOException if reading fails
+     * @param chunkIndex     the chunk index of the entry
+     * @param maxFutureEpoch latest plausible timestamp, larger values only produce a warning
+     * @throws IOException if the timestamp is negative
      */
-    private int[] readTimestampTable() throws IOException
+    private void validateTimestamp(int chunkIndex, long maxFutureEpoch) throws IOException
     {
-        int[] timestamps = new int[CHUNKS_PER_REGION];
-
-        raf.seek(SECTOR_SIZE_BYTES);
+        int timestamp = header.getTimestamp(chunkIndex);
 
-        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        if (timestamp < 0)
         {
-            byte[] timestampBytes = new byte[TIMESTAMP_ENTRY_SIZE];
-            int bytesRead = raf.read(timestampBytes);
-
-            if (bytesRead != TIMESTAMP_ENTRY_SIZE)
-            {
-                throw new IOException(
-                        String.format("Failed to read timestamp entry %d: expected %d bytes, got %d",
-                                i, TIMESTAMP_ENTRY_SIZE, bytesRead)
-                );
-            }
-
-            timestamps[i] = AnvilUtils.readInt(timestampBytes, ByteOrder.BIG_ENDIAN);
-
-            if (timestamps[i] < 0)
-            {
-                throw new IOException(
-                        String.format("Invalid timestamp for chunk %d: %d (timestamps cannot be negative)",
-                                i, timestamps[i])
-                );
-            }
-
-            long currentEpoch = Instant.now().getEpochSecond();
-            long maxFutureEpoch = currentEpoch + (100L * 365 * 24 * 60 * 60); // 100 years
-            if (timestamps[i] > maxFutureEpoch)
-            {
-                System.err.printf("Warning: chunk %d has timestamp %d which is more than 100 years in the future%n",
-                        i, timestamps[i]);
-            }
-        }
-
-        return timestamps;
-    }
-
-    /**
-     * Reads a specific chunk's location from the location table.
-     *
-     * @param chunkIndex the index of the chunk (0-1023)
-     * @return the Location object for the chunk
-     * @throws IOException if reading fails
-     */
-    private Location readChunkLocation(int chunkIndex) throws IOException
-    {
-        if (chunkIndex < 0 || chunkIndex >= CHUNKS_PER_REGION)
-        {
-            throw new IllegalArgumentException(
-                    String.format("Chunk index %d is out of range (0-%d)", chunkIndex, CHUNKS_PER_REGION - 1)
+            throw new IOException(
+                    String.format("Invalid timestamp for chunk %d: %d (timestamps cannot be negative)",
+                            chunkIndex, timestamp)
             );
         }
 
-        long locationOffset = (long) chunkIndex * LOCATION_ENTRY_SIZE;
-        raf.seek(locationOffset);
-
-        byte[] locationBytes = new byte[LOCATION_ENTRY_SIZE];
-        int bytesRead = raf.read(locationBytes);
-
-        if (bytesRead != LOCATION_ENTRY_SIZE)
+        if (timestamp > maxFutureEpoch)
         {
-            throw new IOException(
-                    String.format("Failed to read location for chunk %d: expected %d bytes, got %d",
-                            chunkIndex, LOCATION_ENTRY_SIZE, bytesRead)
-            );
+            System.err.printf("Warning: chunk %d has timestamp %d which is more than 100 years in the future%n",
+                    chunkIndex, timestamp);
         }
-
-        return parseAndValidateLocation(locationBytes, chunkIndex, raf.length());
     }
 
     /**
-     * Reads a specific chunk's timestamp from the timestamp table.
+     * Reads and validates chunk data from the file.
+     * Depending on the {@link ReadMode} the returned buffer is either a heap copy or a read-only slice of the mapped file.
      *
-     * @param chunkIndex the index of the chunk (0-1023)
-     * @return the timestamp for the chunk
-     * @throws IOException if reading fails
+     * @param location the Location object containing offset and sector count
+     * @return the validated chunk data covering all sectors of the chunk
+     * @throws IOException if reading or validation fails
      */
-    private int readChunkTimestamp(int chunkIndex) throws IOException
+    private ByteBuffer readAndValidateChunkData(Location location) throws IOException
     {
-        if (chunkIndex < 0 || chunkIndex >= CHUNKS_PER_REGION)
-        {
-            throw new IllegalArgumentException(
-                    String.format("Chunk index %d is out of range (0-%d)", chunkIndex, CHUNKS_PER_REGION - 1)
-            );
-        }
+        long filePosition = (long) location.getOffset() * AnvilUtils.SECTOR_SIZE;
+        int sectorDataSize = location.getSectorCount() * AnvilUtils.SECTOR_SIZE;
 
-        long timestampOffset = SECTOR_SIZE_BYTES + (long) chunkIndex * TIMESTAMP_ENTRY_SIZE;
-        raf.seek(timestampOffset);
-
-        byte[] timestampBytes = new byte[TIMESTAMP_ENTRY_SIZE];
-        int bytesRead = raf.read(timestampBytes);
-
-        if (bytesRead != TIMESTAMP_ENTRY_SIZE)
-        {
-            throw new IOException(
-                    String.format("Failed to read timestamp for chunk %d: expected %d bytes, got %d",
-                            chunkIndex, TIMESTAMP_ENTRY_SIZE, bytesRead)
-            );
-        }
-
-        return AnvilUtils.readInt(timestampBytes, ByteOrder.BIG_ENDIAN);
+        return validateChunkData(source.read(filePosition, sectorDataSize), location);
     }
 
     /**
-     * Reads and validates chunk data from the file.
+     * Validates chunk data that has already been read from the file.
      *
+     * @param sectorData all sectors of the chunk, starting at position 0
      * @param location the Location object containing offset and sector count
      * @return the validated chunk data
-     * @throws IOException if reading or validation fails
+     * @throws IOException if validation fails
      */
-    private byte[] readAndValidateChunkData(Location location) throws IOException
+    private ByteBuffer validateChunkData(ByteBuffer sectorData, Location location) throws IOException
     {
-        int offset = location.getOffset();
         int sectorCount = location.getSectorCount();
-
-        long filePosition = (long) offset * AnvilUtils.SECTOR_SIZE;
         int sectorDataSize = sectorCount * AnvilUtils.SECTOR_SIZE;
 
-        raf.seek(filePosition);
-        byte[] sectorData = new byte[sectorDataSize];
-        int bytesRead = raf.read(sectorData);
-
-        if (bytesRead != sectorDataSize)
-        {
-            throw new IOException(
-                    String.format("Failed to read chunk sector data: expected %d bytes, got %d",
-                            sectorDataSize, bytesRead)
-            );
-        }
-
-        if (sectorData.length < 4)
+        if (sectorData.remaining() < 4)
         {
             throw new IOException("Chunk data too small: missing length field");
         }
 
-        byte[] lengthBytes = Arrays.copyOfRange(sectorData, 0, 4);
-        int chunkLength = AnvilUtils.readInt(lengthBytes, ByteOrder.BIG_ENDIAN);
+        int chunkLength = sectorData.getInt(0);
 
         if (chunkLength <= 0)
         {
@@ -585,6 +836,23 @@ public class AnvilReader implements IAnvilReader
         return "mca";
     }
 
+    /**
+     * Parses the region coordinates from the filename if it follows the r.x.z.mca pattern.
+     *
+     * @param filename the filename of the region file
+     * @return [regionX, regionZ] coordinates or null if the filename does not follow the pattern
+     */
+    private int[] tryParseRegionCoordinates(String filename)
+    {
+        try
+        {
+            return parseFilenameToCoordinates(filename);
+        } catch (IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+
     /**
      * Parses the filename to extract the region coordinates.
      * Delegates to AnvilUtils for consistent parsing logic.
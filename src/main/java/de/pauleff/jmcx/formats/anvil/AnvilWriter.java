@@ -3,17 +3,42 @@ package de.pauleff.jmcx.formats.anvil;
 import de.pauleff.jmcx.api.IAnvilWriter;
 import de.pauleff.jmcx.api.IChunk;
 import de.pauleff.jmcx.api.IRegion;
+import de.pauleff.jmcx.compression.AdaptiveCodecSelector;
+import de.pauleff.jmcx.compression.CodecSelection;
+import de.pauleff.jmcx.compression.CompressionPolicy;
 import de.pauleff.jmcx.core.Chunk;
+import de.pauleff.jmcx.core.ChunkOrigin;
+import de.pauleff.jmcx.core.ChunkPayload;
+import de.pauleff.jmcx.core.FileStamp;
+import de.pauleff.jmcx.core.Location;
 import de.pauleff.jmcx.core.Region;
+import de.pauleff.jmcx.core.RegionHeader;
 import de.pauleff.jmcx.util.AnvilUtils;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 import static de.pauleff.jmcx.util.AnvilConstants.CHUNKS_PER_REGION;
+import static de.pauleff.jmcx.util.AnvilConstants.EXTERNAL_CHUNK_FLAG;
 import static de.pauleff.jmcx.util.AnvilConstants.SECTOR_SIZE_BYTES;
 
 /**
@@ -24,11 +49,19 @@ import static de.pauleff.jmcx.util.AnvilConstants.SECTOR_SIZE_BYTES;
 public class AnvilWriter implements IAnvilWriter
 {
     private final File anvilFile;
-    private final RandomAccessFile raf;
+    private RandomAccessFile raf;
     private boolean backupEnabled = true;
+    private boolean atomicCommit = true;
+    private boolean writeBarriers = true;
+    private CompressionPolicy compressionPolicy;
+    private AdaptiveCodecSelector codecSelector;
+    private List<CodecSelection> codecSelections = List.of();
+    private RegionHeader header;
+    private SectorAllocator allocator;
 
     /**
      * Constructs an AnvilWriter object.
+     * The file is not opened or created until something is written to it.
      *
      * @param anvilFile the Anvil file to write
      * @throws IOException if I/O error occurs
@@ -36,117 +69,775 @@ public class AnvilWriter implements IAnvilWriter
     public AnvilWriter(File anvilFile) throws IOException
     {
         this.anvilFile = anvilFile;
-        this.raf = new RandomAccessFile(anvilFile, "rw");
     }
 
-    private void writeAnvilFile(Region region) throws IOException
+    /**
+     * Writes the region in three stages: chunks that cannot be copied raw are compressed on the executor,
+     * then the sector layout is computed in chunk order and finally everything is written sequentially.
+     * The output does not depend on the executor.
+     * With atomic commit the region goes to a temporary file which is synced and renamed over the original,
+     * otherwise the original is overwritten in place and truncated to its new size. In that case the payloads of the
+     * region's chunks stored in the original are loaded onto the heap first, so they survive the overwrite.
+     * External chunk files are written to synced temporary files and only renamed into place once the region is.
+     *
+     * @param region {@link Region} to write
+     * @param executor executor compressing the chunks, {@code Runnable::run} compresses inline
+     * @throws IOException if compressing or writing fails
+     */
+    private void writeAnvilFile(Region region, Executor executor) throws IOException
     {
-        if (backupEnabled && Files.exists(anvilFile.toPath()))
+        boolean atomic = atomicCommit;
+        Path tempFile = anvilFile.toPath().resolveSibling(anvilFile.getName() + ".tmp");
+        if (!atomic)
         {
-            File backupFile = new File(anvilFile.getPath() + ".bak");
-            Files.copy(anvilFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            System.out.printf("Created backup of file %s%n", anvilFile.getName());
+            createBackupFile();
         }
+        header = null;
+        allocator = null;
+
+        int currentSectorOffset = RegionHeader.HEADER_SECTORS; // Start after header (2 sectors = 8KiB)
 
-        int currentSectorOffset = 2; // Start after header (2 sectors = 8KiB)
+        List<IChunk> chunks = region.getChunks();
+        ChunkPayload[] payloads = new ChunkPayload[chunks.size()];
+        ChunkOrigin[] origins = new ChunkOrigin[chunks.size()];
+        ByteBuffer[] rawSectors = new ByteBuffer[chunks.size()];
+        long[] modificationCounts = new long[chunks.size()];
+        CodecSelection[] selections = new CodecSelection[chunks.size()];
+        List<CompletableFuture<ChunkPayload>> encodedPayloads = new ArrayList<>(chunks.size());
+        List<File> staleExternalFiles = new ArrayList<>();
+        Map<Path, File> stagedExternalFiles = new LinkedHashMap<>();
+        Map<File, FileChannel> sourceChannels = new HashMap<>();
+        FileChannel target = null;
+        boolean committed = false;
 
-        for (int i = 0; i < region.getChunks().size(); i++)
+        try
         {
-            IChunk iChunk = region.getChunks().get(i);
-            Chunk chunk = (Chunk) iChunk;
+            for (int i = 0; i < chunks.size(); i++)
+            {
+                Chunk chunk = (Chunk) chunks.get(i);
+                if (!atomic && chunk.getOrigin() != null && isTargetFile(chunk.getOrigin().getFile()))
+                {
+                    // Payloads mapped from or lazily read from the file being overwritten would see the new bytes
+                    chunk.detachPayload();
+                }
+                modificationCounts[i] = chunk.getModificationCount();
+                origins[i] = getRawCopyOrigin(chunk);
+
+                if (origins[i] == null)
+                {
+                    int slot = i;
+                    encodedPayloads.add(CompletableFuture.supplyAsync(() -> encodeChunk(chunk, selections, slot), executor));
+                } else
+                {
+                    encodedPayloads.add(null);
+                    if (!atomic && isTargetFile(origins[i].getFile()))
+                    {
+                        // Sectors of the file being overwritten must be read before anything is written
+                        rawSectors[i] = readSectors(getSourceChannel(sourceChannels, origins[i].getFile()), origins[i]);
+                    }
+                }
+            }
 
-            if (chunk.getDataSize() > 0)
+            awaitPayloads(encodedPayloads, payloads);
+
+            for (int i = 0; i < chunks.size(); i++)
             {
-                byte[] fullPayload = chunk.getPayload().getFullPayload();
-                int sectorsNeeded = AnvilUtils.calculateSectorCount(fullPayload.length);
+                Chunk chunk = (Chunk) chunks.get(i);
+                int sectorsNeeded;
+
+                if (origins[i] != null)
+                {
+                    sectorsNeeded = origins[i].getSectorCount();
+                } else if (payloads[i] != null)
+                {
+                    sectorsNeeded = payloads[i].getSectorCount();
+                } else
+                {
+                    chunk.getLocation().setOffset(0);
+                    chunk.getLocation().setSectorCount(0);
+                    continue;
+                }
 
                 chunk.getLocation().setOffset(currentSectorOffset);
                 chunk.getLocation().setSectorCount(sectorsNeeded);
 
                 currentSectorOffset += sectorsNeeded;
+            }
+
+            codecSelections = Arrays.stream(selections).filter(Objects::nonNull).toList();
+
+            target = atomic
+                    ? FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                    : openFile().getChannel();
+            SectorBatch batch = new SectorBatch(target, 0);
+            batch.add(buildHeader(region).toByteBuffer());
+
+            for (int i = 0; i < chunks.size(); i++)
+            {
+                Chunk chunk = (Chunk) chunks.get(i);
+                if (chunk.getLocation().getOffset() == 0) continue;
+
+                long writeOffset = chunk.getLocation().getOffset() * (long) SECTOR_SIZE_BYTES;
+                if (!AnvilUtils.isSectorAligned(writeOffset))
+                {
+                    throw new IOException(
+                            "Chunk offset is not sector-aligned. Offset: " + writeOffset +
+                                    ", should be multiple of " + AnvilUtils.SECTOR_SIZE
+                    );
+                }
+
+                batch.seek(writeOffset);
+
+                File externalFile = getExternalFile(region, chunk);
+                if (origins[i] != null)
+                {
+                    boolean external;
+                    if (rawSectors[i] != null)
+                    {
+                        batch.add(rawSectors[i]);
+                        external = isExternalStub(rawSectors[i]);
+                    } else
+                    {
+                        external = transferSectors(getSourceChannel(sourceChannels, origins[i].getFile()), origins[i], batch.flush());
+                        batch.skip(origins[i].getSize());
+                    }
+                    if (external)
+                    {
+                        File sourceExternalFile = ExternalChunkFile.of(origins[i].getFile(), chunk.getIndex());
+                        if (!sourceExternalFile.getAbsoluteFile().equals(externalFile.getAbsoluteFile()))
+                        {
+                            stagedExternalFiles.put(ExternalChunkFile.stage(externalFile, sourceExternalFile), externalFile);
+                        }
+                        continue;
+                    }
+                } else
+                {
+                    batch.add(payloads[i].getSectorBuffer());
+                    if (payloads[i].isExternal())
+                    {
+                        stagedExternalFiles.put(ExternalChunkFile.stage(externalFile, payloads[i].getDataBuffer()), externalFile);
+                        continue;
+                    }
+                }
+                staleExternalFiles.add(externalFile);
+            }
+            batch.flush();
+
+            if (atomic)
+            {
+                target.force(true);
+                target.close();
+                commitTempFile(tempFile);
             } else
             {
-                chunk.getLocation().setOffset(0);
-                chunk.getLocation().setSectorCount(0);
+                target.truncate(currentSectorOffset * (long) SECTOR_SIZE_BYTES);
+            }
+            for (Map.Entry<Path, File> staged : stagedExternalFiles.entrySet())
+            {
+                ExternalChunkFile.commit(staged.getKey(), staged.getValue());
+            }
+            committed = true;
+        } finally
+        {
+            for (FileChannel channel : sourceChannels.values())
+            {
+                channel.close();
+            }
+            if (atomic && !committed)
+            {
+                if (target != null)
+                {
+                    target.close();
+                }
+                Files.deleteIfExists(tempFile);
+            }
+            if (!committed)
+            {
+                for (Path stagedFile : stagedExternalFiles.keySet())
+                {
+                    Files.deleteIfExists(stagedFile);
+                }
             }
         }
 
-        for (int i = 0; i < region.getChunks().size(); i++)
+        // Stale external files are only removed once the new region no longer references them
+        for (File externalFile : staleExternalFiles)
         {
-            IChunk iChunk = region.getChunks().get(i);
-            Chunk chunk = (Chunk) iChunk;
+            ExternalChunkFile.delete(externalFile);
+        }
 
-            raf.seek(i * 4L);
-            int offset = chunk.getLocation().getOffset();
-            int sectorCount = chunk.getLocation().getSectorCount();
+        FileStamp.advance(anvilFile);
+        FileStamp stamp = FileStamp.of(anvilFile);
+        for (int i = 0; i < chunks.size(); i++)
+        {
+            Chunk chunk = (Chunk) chunks.get(i);
+            Location location = chunk.getLocation();
+            chunk.markStored(location.getOffset() == 0
+                    ? null
+                    : new ChunkOrigin(anvilFile, stamp, location.getOffset(), location.getSectorCount()), modificationCounts[i]);
+        }
+    }
 
-            if (offset < 0 || offset > 0xFFFFFF)
+    /**
+     * Replaces the region file with a fully written and synced temporary file by renaming it.
+     * If backups are enabled, the original is hard-linked to the {@code .bak} file first instead of being copied.
+     * The open handle on the original is closed, the next in-place write opens the new file.
+     *
+     * @param tempFile synced temporary file next to the region file
+     * @throws IOException if the backup or the rename fails
+     */
+    private void commitTempFile(Path tempFile) throws IOException
+    {
+        Path target = anvilFile.toPath();
+        if (backupEnabled && hasContent())
+        {
+            Path backupFile = target.resolveSibling(anvilFile.getName() + ".bak");
+            Files.deleteIfExists(backupFile);
+            try
             {
-                throw new IllegalArgumentException("Sector offset out of range: " + offset);
+                Files.createLink(backupFile, target);
+            } catch (UnsupportedOperationException | IOException e)
+            {
+                Files.copy(target, backupFile, StandardCopyOption.REPLACE_EXISTING);
             }
-            if (sectorCount < 0 || sectorCount > 0xFF)
+            System.out.printf("Created backup of file %s%n", anvilFile.getName());
+        }
+
+        closeFile();
+        FileCommit.replace(tempFile, target);
+    }
+
+    /**
+     * Checks whether the region file exists and is not empty, i.e. worth backing up.
+     *
+     * @return true if the file has content
+     * @throws IOException if the file size cannot be read
+     */
+    private boolean hasContent() throws IOException
+    {
+        return Files.exists(anvilFile.toPath()) && Files.size(anvilFile.toPath()) > 0;
+    }
+
+    /**
+     * Gets the handle for in-place writes, opening or creating the region file on first use.
+     *
+     * @return open {@link RandomAccessFile} of the region file
+     * @throws IOException if the file cannot be opened
+     */
+    private RandomAccessFile openFile() throws IOException
+    {
+        if (raf == null)
+        {
+            raf = new RandomAccessFile(anvilFile, "rw");
+        }
+        return raf;
+    }
+
+    /**
+     * Closes the handle for in-place writes if it is open.
+     *
+     * @throws IOException if closing fails
+     */
+    private void closeFile() throws IOException
+    {
+        if (raf != null)
+        {
+            raf.close();
+            raf = null;
+        }
+    }
+
+    /**
+     * Copies the region file to a {@code .bak} file next to it if backups are enabled.
+     *
+     * @throws IOException if copying fails
+     */
+    private void createBackupFile() throws IOException
+    {
+        if (backupEnabled && hasContent())
+        {
+            File backupFile = new File(anvilFile.getPath() + ".bak");
+            Files.copy(anvilFile.toPath(), backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.out.printf("Created backup of file %s%n", anvilFile.getName());
+        }
+    }
+
+    /**
+     * Loads the header and sector bitmap for in-place chunk writes, once per writer.
+     * A file without a complete header is initialized with an empty one.
+     * No backup is made, in-place writes never overwrite sectors in use.
+     *
+     * @throws IOException if reading or initializing the header fails
+     */
+    private void loadAllocationState() throws IOException
+    {
+        if (header != null)
+        {
+            return;
+        }
+
+        RandomAccessFile file = openFile();
+        if (file.length() < RegionHeader.HEADER_SIZE_BYTES)
+        {
+            header = RegionHeader.empty();
+            file.seek(0);
+            file.write(header.toByteBuffer().array());
+        } else
+        {
+            header = RegionHeader.read(file);
+        }
+        allocator = new SectorAllocator(header);
+    }
+
+    /**
+     * Updates the 4-byte location and timestamp entries of one chunk in the file header.
+     *
+     * @param index chunk index (0-1023)
+     * @param offset sector offset, 0 if the chunk is empty
+     * @param sectorCount number of sectors
+     * @param timestamp last modification timestamp
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if the entry exceeds the format limits
+     */
+    private void writeHeaderEntry(int index, int offset, int sectorCount, int timestamp) throws IOException
+    {
+        header = header.withEntry(index, offset, sectorCount, timestamp);
+        raf.seek(index * 4L);
+        raf.writeInt((offset << 8) | sectorCount);
+        raf.seek(SECTOR_SIZE_BYTES + index * 4L);
+        raf.writeInt(timestamp);
+    }
+
+    /**
+     * Gets the stored sectors a chunk can be copied from without encoding it again.
+     * Only unmodified chunks whose source file has not changed since qualify, and only if no recompression is requested.
+     *
+     * @param chunk {@link Chunk} to write
+     * @return origin to copy from, or null if the chunk must be encoded
+     */
+    private ChunkOrigin getRawCopyOrigin(Chunk chunk)
+    {
+        if (codecSelector != null || compressionPolicy != null || chunk.isModified())
+        {
+            return null;
+        }
+        ChunkOrigin origin = chunk.getOrigin();
+        return origin != null && origin.isUnchanged() ? origin : null;
+    }
+
+    /**
+     * Checks whether a file is the file this writer writes to.
+     *
+     * @param file file to check
+     * @return true if both exist and denote the same file
+     * @throws IOException if the files cannot be compared
+     */
+    private boolean isTargetFile(File file) throws IOException
+    {
+        return file.exists() && anvilFile.exists() && Files.isSameFile(file.toPath(), anvilFile.toPath());
+    }
+
+    /**
+     * Gets a read channel for a source file, opening it on first use.
+     *
+     * @param sourceChannels channels opened during the current write
+     * @param file source region file
+     * @return read channel of the file
+     * @throws IOException if the file cannot be opened
+     */
+    private static FileChannel getSourceChannel(Map<File, FileChannel> sourceChannels, File file) throws IOException
+    {
+        FileChannel channel = sourceChannels.get(file);
+        if (channel == null)
+        {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            sourceChannels.put(file, channel);
+        }
+        return channel;
+    }
+
+    /**
+     * Reads the sectors of a chunk into memory.
+     *
+     * @param source channel of the source file
+     * @param origin sectors to read
+     * @return buffer holding the sectors
+     * @throws IOException if the sectors cannot be read completely
+     */
+    private static ByteBuffer readSectors(FileChannel source, ChunkOrigin origin) throws IOException
+    {
+        ByteBuffer sectors = ByteBuffer.allocate(origin.getSize());
+        while (sectors.hasRemaining())
+        {
+            if (source.read(sectors, origin.getFilePosition() + sectors.position()) < 0)
             {
-                throw new IllegalArgumentException("Sector count out of range: " + sectorCount);
+                throw new IOException("Unexpected end of file while copying chunk sectors: " + origin);
             }
+        }
+        return sectors.flip();
+    }
+
+    /**
+     * Writes chunk sectors at the current position of a channel.
+     *
+     * @param target channel of the file being written
+     * @param sectors chunk sectors
+     * @return true if the sectors hold the stub of an externally stored chunk
+     * @throws IOException if writing fails
+     */
+    private static boolean writeSectors(FileChannel target, ByteBuffer sectors) throws IOException
+    {
+        boolean external = isExternalStub(sectors);
+        while (sectors.hasRemaining())
+        {
+            target.write(sectors);
+        }
+        return external;
+    }
 
-            raf.writeByte((offset >> 16) & 0xFF);
-            raf.writeByte((offset >> 8) & 0xFF);
-            raf.writeByte(offset & 0xFF);
-            raf.writeByte(chunk.getLocation().getSectorCount() & 0xFF);
+    /**
+     * Checks whether chunk sectors hold the stub of an externally stored chunk.
+     *
+     * @param sectors chunk sectors starting at the chunk header, its position is not modified
+     * @return true if the compression type carries the external flag
+     */
+    private static boolean isExternalStub(ByteBuffer sectors)
+    {
+        return (sectors.get(sectors.position() + 4) & EXTERNAL_CHUNK_FLAG) != 0;
+    }
 
-            raf.seek(i * 4L + (long) SECTOR_SIZE_BYTES);
-            raf.writeInt(chunk.getTimestamp());
+    /**
+     * Copies sectors from another region file to the current position of a channel without passing them through the heap.
+     *
+     * @param source channel of the source file
+     * @param origin sectors to copy
+     * @param target channel of the file being written
+     * @return true if the sectors hold the stub of an externally stored chunk
+     * @throws IOException if the sectors cannot be copied completely
+     */
+    private static boolean transferSectors(FileChannel source, ChunkOrigin origin, FileChannel target) throws IOException
+    {
+        long position = origin.getFilePosition();
+        long end = position + origin.getSize();
+        while (position < end)
+        {
+            long transferred = source.transferTo(position, end - position, target);
+            if (transferred <= 0)
+            {
+                throw new IOException("Unexpected end of file while copying chunk sectors: " + origin);
+            }
+            position += transferred;
         }
 
-        for (IChunk iChunk : region.getChunks())
+        if (origin.getSectorCount() > 1)
         {
-            Chunk chunk = (Chunk) iChunk;
-            if (chunk.getLocation().getOffset() == 0) continue;
+            return false;
+        }
+        ByteBuffer compressionType = ByteBuffer.allocate(1);
+        source.read(compressionType, origin.getFilePosition() + 4);
+        return (compressionType.get(0) & EXTERNAL_CHUNK_FLAG) != 0;
+    }
 
-            raf.seek(chunk.getLocation().getOffset() * (long) SECTOR_SIZE_BYTES);
+    /**
+     * Gets the external {@code .mcc} file a chunk of the region is stored in when it exceeds the region file's sector limit.
+     *
+     * @param region {@link Region} the chunk belongs to
+     * @param chunk {@link Chunk} to get the file for
+     * @return external chunk file next to the region file
+     */
+    private File getExternalFile(Region region, Chunk chunk)
+    {
+        int[] chunkCoordinates = AnvilUtils.calculateChunkCoordinates(region.getX(), region.getZ(), chunk.getIndex());
+        return ExternalChunkFile.of(anvilFile, chunkCoordinates[0], chunkCoordinates[1]);
+    }
 
-            byte[] fullPayload = chunk.getPayload().getFullPayload();
-            byte[] paddedData = AnvilUtils.padToSectorSize(fullPayload);
+    /**
+     * Compresses a chunk for writing, running on the executor of the current write.
+     * Pending compression of the chunk happens here, followed by recompression for the codec selector or compression policy.
+     *
+     * @param chunk {@link Chunk} to write
+     * @param selections array the chosen codec is recorded in when adaptive selection is enabled
+     * @param slot position of the chunk in the region's chunk list
+     * @return payload to write, or null if the chunk is empty
+     * @throws UncheckedIOException if loading or compressing the payload fails
+     */
+    private ChunkPayload encodeChunk(Chunk chunk, CodecSelection[] selections, int slot)
+    {
+        try
+        {
+            ChunkPayload payload = chunk.getPayload();
+            return payload.getLength() > 0 ? preparePayload(chunk, payload, selections, slot) : null;
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            long writeOffset = chunk.getLocation().getOffset() * (long) SECTOR_SIZE_BYTES;
-            if (!AnvilUtils.isSectorAligned(writeOffset))
+    /**
+     * Waits for all compression tasks of a write and collects their payloads.
+     * All tasks are finished before a failure is rethrown.
+     *
+     * @param encodedPayloads compression tasks, null for chunks copied raw
+     * @param payloads array receiving the payloads at the tasks' positions
+     * @throws IOException if a task failed with an I/O error
+     */
+    private static void awaitPayloads(List<CompletableFuture<ChunkPayload>> encodedPayloads, ChunkPayload[] payloads) throws IOException
+    {
+        CompletableFuture.allOf(encodedPayloads.stream().filter(Objects::nonNull).toArray(CompletableFuture<?>[]::new))
+                .handle((result, e) -> null).join();
+
+        for (int i = 0; i < payloads.length; i++)
+        {
+            if (encodedPayloads.get(i) == null)
+            {
+                continue;
+            }
+            try
             {
-                throw new IOException(
-                        "Chunk offset is not sector-aligned. Offset: " + writeOffset +
-                                ", should be multiple of " + AnvilUtils.SECTOR_SIZE
-                );
+                payloads[i] = encodedPayloads.get(i).join();
+            } catch (CompletionException e)
+            {
+                if (e.getCause() instanceof UncheckedIOException uncheckedException)
+                {
+                    throw uncheckedException.getCause();
+                }
+                if (e.getCause() instanceof RuntimeException runtimeException)
+                {
+                    throw runtimeException;
+                }
+                throw e;
             }
+        }
+    }
 
-            raf.write(paddedData);
+    /**
+     * Gets the payload to write for a chunk, recompressed according to the codec selector or compression policy.
+     *
+     * @param chunk non-empty {@link Chunk} to write
+     * @param payload current payload of the chunk
+     * @param selections array the chosen codec is recorded in when adaptive selection is enabled
+     * @param slot position of the chunk in the region's chunk list
+     * @return payload to write
+     * @throws IOException if recompression fails
+     */
+    private ChunkPayload preparePayload(Chunk chunk, ChunkPayload payload, CodecSelection[] selections, int slot) throws IOException
+    {
+        if (codecSelector != null)
+        {
+            byte[] data = payload.getDecompressedData();
+            AdaptiveCodecSelector.Choice choice = codecSelector.select(data);
+            AdaptiveCodecSelector.Candidate candidate = choice.getCandidate();
+            Optional<byte[]> compressedData = choice.getCompressedData();
+            ChunkPayload selected = compressedData.isPresent()
+                    ? ChunkPayload.ofCompressed(candidate.getCodec().getType(), compressedData.get())
+                    : ChunkPayload.encode(data, data.length, candidate.getCodec(), candidate.getPolicy());
+            selections[slot] = new CodecSelection(chunk.getIndex(), candidate.getCodec(), candidate.getPolicy(), data.length, selected.getLength());
+            return selected;
+        }
+        if (compressionPolicy != null)
+        {
+            return payload.recompress(compressionPolicy);
+        }
+        return payload;
+    }
+
+    /**
+     * Builds the region header from the chunk locations assigned during layout.
+     *
+     * @param region {@link Region} whose chunks have been laid out
+     * @return {@link RegionHeader} describing the region
+     * @throws IllegalArgumentException if a location exceeds the format limits
+     */
+    private RegionHeader buildHeader(Region region)
+    {
+        List<IChunk> chunks = region.getChunks();
+        int[] offsets = new int[CHUNKS_PER_REGION];
+        int[] sectorCounts = new int[CHUNKS_PER_REGION];
+        int[] timestamps = new int[CHUNKS_PER_REGION];
+
+        for (int i = 0; i < chunks.size(); i++)
+        {
+            Chunk chunk = (Chunk) chunks.get(i);
+            offsets[i] = chunk.getLocation().getOffset();
+            sectorCounts[i] = chunk.getLocation().getSectorCount();
+            timestamps[i] = chunk.getTimestamp();
         }
+
+        return RegionHeader.of(offsets, sectorCounts, timestamps);
     }
 
     /**
      * Writes region to file.
+     * Chunks that were not modified since they were read are copied sector by sector from their source file,
+     * unless a compression policy or codec selector requests recompression.
+     * By default the file is replaced atomically, see {@link #setAtomicCommit(boolean)}.
      *
      * @param region {@link IRegion} to write
      * @throws IOException if I/O error occurs
      */
     @Override
     public void writeRegion(IRegion region) throws IOException
+    {
+        writeRegion(region, Runnable::run);
+    }
+
+    /**
+     * Writes region to file, compressing modified chunks in parallel.
+     * Layout and writing stay sequential, the file is byte-identical to {@link #writeRegion(IRegion)}.
+     *
+     * @param region {@link IRegion} to write
+     * @param executor executor compressing the chunks, e.g. a {@link java.util.concurrent.ForkJoinPool}
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public void writeRegion(IRegion region, Executor executor) throws IOException
     {
         if (!(region instanceof Region))
         {
             throw new IllegalArgumentException("Region must be an instance of de.pauleff.jmcx.core.Region");
         }
-        writeAnvilFile((Region) region);
+        if (executor == null)
+        {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        writeAnvilFile((Region) region, executor);
     }
 
     /**
-     * Writes individual chunk (not implemented).
+     * Writes a single chunk into the existing region file without rewriting the rest of it.
+     * The chunk goes to the lowest hole of free sectors large enough, or is appended to the file.
+     * The new sectors are synced before the chunk's location and timestamp entries in the header are updated,
+     * unless write barriers are disabled.
+     * Only then are a stale external file deleted and the old sectors released,
+     * so an interrupted write leaves either the previous or the new version in place. The file is never truncated here,
+     * as readers may still map the released sectors.
+     * An unmodified chunk already stored at its current location only gets its timestamp entry rewritten.
+     * No backup is made, as the sectors of the previous version are not overwritten.
      *
-     * @param chunk {@link IChunk} to write
-     * @throws UnsupportedOperationException always
+     * @param chunk {@link IChunk} to write, its index determines the header entry
+     * @throws IOException if I/O error occurs
+     * @throws IllegalArgumentException if chunk is not an instance of {@link Chunk}
      */
     @Override
-    public void writeChunk(IChunk chunk)
+    public void writeChunk(IChunk chunk) throws IOException
     {
-        throw new UnsupportedOperationException("Individual chunk writing not yet implemented");
+        if (!(chunk instanceof Chunk concreteChunk))
+        {
+            throw new IllegalArgumentException("Chunk must be an instance of de.pauleff.jmcx.core.Chunk");
+        }
+        loadAllocationState();
+
+        int index = concreteChunk.getIndex();
+        int oldOffset = header.getOffset(index);
+        int oldSectorCount = header.getSectorCount(index);
+
+        long modificationCount = concreteChunk.getModificationCount();
+        ChunkOrigin origin = getRawCopyOrigin(concreteChunk);
+        if (origin != null && isTargetFile(origin.getFile()))
+        {
+            if (origin.getOffset() == oldOffset && origin.getSectorCount() == oldSectorCount)
+            {
+                writeHeaderEntry(index, oldOffset, oldSectorCount, concreteChunk.getTimestamp());
+                return;
+            }
+            origin = null;
+        }
+
+        ChunkPayload payload = null;
+        int sectorCount = 0;
+        if (origin != null)
+        {
+            sectorCount = origin.getSectorCount();
+        } else
+        {
+            CodecSelection[] selections = new CodecSelection[1];
+            payload = concreteChunk.getPayload();
+            if (payload.getLength() > 0)
+            {
+                payload = preparePayload(concreteChunk, payload, selections, 0);
+                sectorCount = payload.getSectorCount();
+            }
+            codecSelections = Arrays.stream(selections).filter(Objects::nonNull).toList();
+        }
+
+        int offset = 0;
+        boolean external = false;
+        if (sectorCount > 0)
+        {
+            offset = allocator.allocate(sectorCount);
+            FileChannel target = raf.getChannel().position(offset * (long) SECTOR_SIZE_BYTES);
+
+            if (origin != null)
+            {
+                try (FileChannel source = FileChannel.open(origin.getFile().toPath(), StandardOpenOption.READ))
+                {
+                    external = transferSectors(source, origin, target);
+                }
+                if (external)
+                {
+                    File externalFile = ExternalChunkFile.of(anvilFile, index);
+                    ExternalChunkFile.commit(ExternalChunkFile.stage(externalFile, ExternalChunkFile.of(origin.getFile(), index)),
+                            externalFile);
+                }
+            } else
+            {
+                writeSectors(target, payload.getSectorBuffer());
+                external = payload.isExternal();
+                if (external)
+                {
+                    ExternalChunkFile.write(ExternalChunkFile.of(anvilFile, index), payload.getDataBuffer());
+                }
+            }
+            if (writeBarriers)
+            {
+                target.force(false);
+            }
+        }
+
+        writeHeaderEntry(index, offset, sectorCount, concreteChunk.getTimestamp());
+        if (!external)
+        {
+            deleteStaleExternalFile(index);
+        }
+        if (oldOffset != 0)
+        {
+            allocator.free(oldOffset, oldSectorCount);
+        }
+
+        FileStamp.advance(anvilFile);
+        concreteChunk.getLocation().setOffset(offset);
+        concreteChunk.getLocation().setSectorCount(sectorCount);
+        concreteChunk.markStored(offset == 0
+                ? null
+                : new ChunkOrigin(anvilFile, FileStamp.of(anvilFile), offset, sectorCount), modificationCount);
+    }
+
+    /**
+     * Deletes the external file of a chunk that is no longer stored externally.
+     * The header entry no longer pointing to it is synced first. Files not named after their region cannot have
+     * external chunks, as readers could not locate them, so nothing is deleted for them.
+     *
+     * @param index chunk index (0-1023)
+     * @throws IOException if syncing or deleting fails
+     */
+    private void deleteStaleExternalFile(int index) throws IOException
+    {
+        File externalFile;
+        try
+        {
+            externalFile = ExternalChunkFile.of(anvilFile, index);
+        } catch (IOException e)
+        {
+            return;
+        }
+        if (externalFile.exists())
+        {
+            if (writeBarriers)
+            {
+                raf.getChannel().force(false);
+            }
+            ExternalChunkFile.delete(externalFile);
+        }
     }
 
     /**
@@ -181,6 +872,99 @@ public class AnvilWriter implements IAnvilWriter
         this.backupEnabled = enabled;
     }
 
+    /**
+     * Enables or disables atomic commit of region writes, enabled by default.
+     * Without it the file is overwritten in place. Chunks of the written region are detached from the file first,
+     * but other chunks read from it through a {@link ReadMode#MEMORY_MAPPED} reader or lazily must not be used afterwards.
+     *
+     * @param enabled true to write through a temporary file, false to overwrite in place
+     */
+    @Override
+    public void setAtomicCommit(boolean enabled)
+    {
+        this.atomicCommit = enabled;
+    }
+
+    /**
+     * Enables or disables the syncs ordering the sectors of an in-place chunk write before its header entry,
+     * enabled by default. Without them {@link #writeChunk(IChunk)} never syncs the region file, a crash before the
+     * next {@link #flush()} may then leave header entries pointing to sectors that never reached the disk.
+     * Set by {@link AsyncAnvilWriter} from its {@link SyncPolicy}.
+     *
+     * @param enabled true to sync before every header update
+     */
+    void setWriteBarriers(boolean enabled)
+    {
+        this.writeBarriers = enabled;
+    }
+
+    /**
+     * Checks if region writes are committed atomically.
+     *
+     * @return true if writing through a temporary file
+     */
+    @Override
+    public boolean isAtomicCommit()
+    {
+        return atomicCommit;
+    }
+
+    /**
+     * Sets the compression settings chunks are recompressed with when writing.
+     *
+     * @param policy compression settings, or null to write payloads as they are
+     */
+    @Override
+    public void setCompressionPolicy(CompressionPolicy policy)
+    {
+        this.compressionPolicy = policy;
+    }
+
+    /**
+     * Gets the compression settings chunks are recompressed with when writing.
+     *
+     * @return compression settings, or null if payloads are written as they are
+     */
+    @Override
+    public CompressionPolicy getCompressionPolicy()
+    {
+        return compressionPolicy;
+    }
+
+    /**
+     * Enables adaptive codec selection, choosing codec and settings per chunk when writing.
+     * Takes precedence over the compression policy.
+     *
+     * @param selector codec selector, or null to disable adaptive selection
+     */
+    @Override
+    public void setCodecSelector(AdaptiveCodecSelector selector)
+    {
+        this.codecSelector = selector;
+    }
+
+    /**
+     * Gets the adaptive codec selector.
+     *
+     * @return codec selector, or null if adaptive selection is disabled
+     */
+    @Override
+    public AdaptiveCodecSelector getCodecSelector()
+    {
+        return codecSelector;
+    }
+
+    /**
+     * Gets the codec chosen for each chunk during the last region write with adaptive selection.
+     *
+     * @return unmodifiable list of selections in chunk order, empty if adaptive selection was disabled
+     */
+    @Override
+    public List<CodecSelection> getCodecSelections()
+    {
+        return codecSelections;
+    }
+
     /**
      * Gets absolute file path.
      *
@@ -243,7 +1027,10 @@ public class AnvilWriter implements IAnvilWriter
     @Override
     public void flush() throws IOException
     {
-        raf.getFD().sync();
+        if (raf != null)
+        {
+            raf.getFD().sync();
+        }
     }
 
     /**
@@ -254,6 +1041,6 @@ public class AnvilWriter implements IAnvilWriter
     @Override
     public void close() throws IOException
     {
-        raf.close();
+        closeFile();
     }
 }
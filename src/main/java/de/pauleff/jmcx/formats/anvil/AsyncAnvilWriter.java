@@ -0,0 +1,404 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import de.pauleff.jmcx.api.IAnvilWriter;
+import de.pauleff.jmcx.api.IChunk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind front end for an {@link IAnvilWriter}, so editing tools do not block on disk for every change.
+ * Chunk writes are queued and handed to the wrapped writer's {@link IAnvilWriter#writeChunk(IChunk)} in batches on a
+ * background thread, once a batch is full or its oldest write has waited for the maximum delay.
+ * Repeated writes to the same chunk index within a batch are coalesced into one, written as the chunk is at that time.
+ * Chunks are not copied when queued; a {@link de.pauleff.jmcx.core.Chunk} may still be edited through
+ * {@code setNBTData} meanwhile, the batch writes the data last set. An edit racing with the write of its chunk
+ * leaves the chunk modified, it reaches disk once the chunk is queued again.
+ * When written chunks are forced to disk through {@link IAnvilWriter#flush()} is configured by a {@link SyncPolicy}.
+ * Unless the policy is {@link SyncPolicy#PER_BATCH}, a wrapped {@link AnvilWriter} also skips the sync it otherwise
+ * makes before every header update, so the policy controls all syncs of the region file.
+ * The wrapped writer is only used from the background thread and is closed with this writer.
+ *
+ * @author Paul Ferlitz
+ */
+public class AsyncAnvilWriter implements AutoCloseable
+{
+    private static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    private static final Duration DEFAULT_MAX_DELAY = Duration.ofMillis(500);
+
+    private final IAnvilWriter delegate;
+    private final int maxBatchSize;
+    private final Duration maxDelay;
+    private final SyncPolicy syncPolicy;
+    private final ScheduledThreadPoolExecutor executor;
+    private final Object lock = new Object();
+    private Map<Integer, PendingWrite> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> delayTimer;
+    private boolean closed;
+    private boolean dirty;
+
+    /**
+     * Creates a writer flushing batches of up to 64 chunks after at most 500 ms and syncing after every batch.
+     *
+     * @param delegate writer the chunks are written with
+     * @throws IllegalArgumentException if delegate is null
+     */
+    public AsyncAnvilWriter(IAnvilWriter delegate)
+    {
+        this(delegate, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY, SyncPolicy.PER_BATCH);
+    }
+
+    /**
+     * Creates a writer.
+     *
+     * @param delegate writer the chunks are written with
+     * @param maxBatchSize number of distinct chunks that triggers a batch immediately
+     * @param maxDelay maximum time a queued write waits before its batch is written
+     * @param syncPolicy when written chunks are forced to disk
+     * @throws IllegalArgumentException if an argument is null, maxBatchSize is not positive or maxDelay is negative
+     */
+    public AsyncAnvilWriter(IAnvilWriter delegate, int maxBatchSize, Duration maxDelay, SyncPolicy syncPolicy)
+    {
+        if (delegate == null || maxDelay == null || syncPolicy == null)
+        {
+            throw new IllegalArgumentException("Writer, maximum delay and sync policy cannot be null");
+        }
+        if (maxBatchSize <= 0)
+        {
+            throw new IllegalArgumentException("Maximum batch size must be positive, got: " + maxBatchSize);
+        }
+        if (maxDelay.isNegative())
+        {
+            throw new IllegalArgumentException("Maximum delay cannot be negative, got: " + maxDelay);
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.syncPolicy = syncPolicy;
+        if (delegate instanceof AnvilWriter anvilWriter)
+        {
+            anvilWriter.setWriteBarriers(syncPolicy.getMode() == SyncPolicy.Mode.PER_BATCH);
+        }
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable ->
+        {
+            Thread thread = new Thread(runnable, "jmcx-write-behind-" + delegate.getFilePath());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor.setRemoveOnCancelPolicy(true);
+
+        if (syncPolicy.getMode() == SyncPolicy.Mode.PERIODIC)
+        {
+            long interval = syncPolicy.getInterval().toNanos();
+            executor.scheduleWithFixedDelay(this::periodicSync, interval, interval, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Queues a chunk to be written. Returns immediately.
+     * If a write of the same chunk index is still queued, the chunk replaces it and both share the same future.
+     *
+     * @param chunk {@link IChunk} to write, written with the data it holds when its batch is processed
+     * @return future completed when the chunk is written, or synced with {@link SyncPolicy#PER_BATCH};
+     * completed exceptionally if writing or syncing fails
+     * @throws IllegalArgumentException if chunk is null
+     * @throws IllegalStateException if this writer is closed
+     */
+    public CompletableFuture<Void> writeChunk(IChunk chunk)
+    {
+        if (chunk == null)
+        {
+            throw new IllegalArgumentException("Chunk cannot be null");
+        }
+
+        synchronized (lock)
+        {
+            checkOpen();
+            PendingWrite write = pending.get(chunk.getIndex());
+            if (write != null)
+            {
+                write.chunk = chunk;
+                return write.future.copy();
+            }
+
+            write = new PendingWrite(chunk);
+            pending.put(chunk.getIndex(), write);
+            if (pending.size() == maxBatchSize)
+            {
+                executor.execute(this::writeBatch);
+            } else if (pending.size() == 1)
+            {
+                delayTimer = executor.schedule(this::writeBatch, maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+            }
+            return write.future.copy();
+        }
+    }
+
+    /**
+     * Writes all queued chunks without waiting for a trigger and syncs them, regardless of the sync policy.
+     *
+     * @return future completed when all chunks queued so far are written and synced;
+     * completed exceptionally if one of them or the sync fails
+     * @throws IllegalStateException if this writer is closed
+     */
+    public CompletableFuture<Void> flush()
+    {
+        synchronized (lock)
+        {
+            checkOpen();
+            return submitFinalBatch(false);
+        }
+    }
+
+    /**
+     * Gets the number of distinct chunks waiting to be written.
+     *
+     * @return queued chunk count
+     */
+    public int getPendingCount()
+    {
+        synchronized (lock)
+        {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Gets the sync policy.
+     *
+     * @return sync policy
+     */
+    public SyncPolicy getSyncPolicy()
+    {
+        return syncPolicy;
+    }
+
+    /**
+     * Writes all queued chunks, syncs them unless the policy is {@link SyncPolicy#NEVER},
+     * closes the wrapped writer and stops the background thread.
+     *
+     * @throws IOException if writing, syncing or closing fails
+     */
+    @Override
+    public void close() throws IOException
+    {
+        CompletableFuture<Void> closing;
+        synchronized (lock)
+        {
+            if (closed)
+            {
+                return;
+            }
+            closing = submitFinalBatch(true);
+            closed = true;
+        }
+        executor.shutdown();
+
+        try
+        {
+            closing.join();
+        } catch (CompletionException e)
+        {
+            if (e.getCause() instanceof IOException ioException)
+            {
+                throw ioException;
+            }
+            if (e.getCause() instanceof UncheckedIOException uncheckedException)
+            {
+                throw uncheckedException.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Submits a task writing the current batch and syncing it, optionally closing the wrapped writer afterwards.
+     * The wrapped writer is closed even if the sync fails, a failure to close is then added as suppressed.
+     * Must be called while holding the lock, before the executor is shut down.
+     *
+     * @param close whether to close the wrapped writer
+     * @return future completed when the task is done
+     */
+    private CompletableFuture<Void> submitFinalBatch(boolean close)
+    {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        executor.execute(() ->
+        {
+            CompletableFuture<Void> written = writeBatch();
+            IOException failure = null;
+            try
+            {
+                if (!close || syncPolicy.getMode() != SyncPolicy.Mode.NEVER)
+                {
+                    sync();
+                }
+            } catch (IOException e)
+            {
+                failure = e;
+            } finally
+            {
+                if (close)
+                {
+                    try
+                    {
+                        delegate.close();
+                    } catch (IOException e)
+                    {
+                        if (failure == null)
+                        {
+                            failure = e;
+                        } else
+                        {
+                            failure.addSuppressed(e);
+                        }
+                    }
+                }
+            }
+            if (failure != null)
+            {
+                result.completeExceptionally(failure);
+                return;
+            }
+            written.whenComplete((ignored, e) ->
+            {
+                if (e != null)
+                {
+                    result.completeExceptionally(e);
+                } else
+                {
+                    result.complete(null);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Writes the queued chunks with the wrapped writer, running on the background thread.
+     * The delay timer of the batch is cancelled, the next queued write starts a new one.
+     * A failing chunk only fails its own future. With {@link SyncPolicy#PER_BATCH} futures complete after the sync.
+     *
+     * @return future completed when all chunks of the batch are done
+     */
+    private CompletableFuture<Void> writeBatch()
+    {
+        List<PendingWrite> batch;
+        synchronized (lock)
+        {
+            if (pending.isEmpty())
+            {
+                return CompletableFuture.completedFuture(null);
+            }
+            batch = new ArrayList<>(pending.values());
+            pending = new LinkedHashMap<>();
+            if (delayTimer != null)
+            {
+                delayTimer.cancel(false);
+                delayTimer = null;
+            }
+        }
+
+        List<PendingWrite> written = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch)
+        {
+            try
+            {
+                delegate.writeChunk(write.chunk);
+                dirty = true;
+                written.add(write);
+            } catch (IOException | RuntimeException e)
+            {
+                write.future.completeExceptionally(e);
+            }
+        }
+
+        IOException syncFailure = null;
+        if (syncPolicy.getMode() == SyncPolicy.Mode.PER_BATCH)
+        {
+            try
+            {
+                sync();
+            } catch (IOException e)
+            {
+                syncFailure = e;
+            }
+        }
+        for (PendingWrite write : written)
+        {
+            if (syncFailure != null)
+            {
+                write.future.completeExceptionally(syncFailure);
+            } else
+            {
+                write.future.complete(null);
+            }
+        }
+        return CompletableFuture.allOf(batch.stream().map(write -> write.future).toArray(CompletableFuture<?>[]::new));
+    }
+
+    /**
+     * Forces written chunks to disk if anything was written since the last sync. Runs on the background thread.
+     *
+     * @throws IOException if syncing fails
+     */
+    private void sync() throws IOException
+    {
+        if (dirty)
+        {
+            delegate.flush();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Syncs on the schedule of a periodic policy. Failures are reported and retried with the next sync.
+     */
+    private void periodicSync()
+    {
+        try
+        {
+            sync();
+        } catch (IOException e)
+        {
+            System.err.printf("Warning: Periodic sync of %s failed: %s%n", delegate.getFilePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that this writer accepts new requests. Must be called while holding the lock.
+     *
+     * @throws IllegalStateException if this writer is closed
+     */
+    private void checkOpen()
+    {
+        if (closed)
+        {
+            throw new IllegalStateException("Writer is closed: " + delegate.getFilePath());
+        }
+    }
+
+    /**
+     * Queued write of a chunk index, holding the latest chunk submitted for it.
+     */
+    private static final class PendingWrite
+    {
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private IChunk chunk;
+
+        private PendingWrite(IChunk chunk)
+        {
+            this.chunk = chunk;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link RegionSource} using positional {@link FileChannel#read(ByteBuffer, long)} calls.
+ * Reads never touch a shared file position, so any number of threads may read concurrently.
+ * Note that interrupting a thread blocked in a read closes the channel for all threads.
+ *
+ * @author Paul Ferlitz
+ */
+class ChannelRegionSource implements RegionSource
+{
+    private final FileChannel channel;
+
+    /**
+     * Constructs a ChannelRegionSource.
+     *
+     * @param file region file to open
+     * @throws IOException if the file cannot be opened
+     */
+    ChannelRegionSource(File file) throws IOException
+    {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    /**
+     * Gets file size in bytes.
+     *
+     * @return file size
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public long size() throws IOException
+    {
+        return channel.size();
+    }
+
+    /**
+     * Reads a range of the file without moving the channel position.
+     *
+     * @param position absolute file position
+     * @param length   number of bytes to read
+     * @return buffer holding the requested bytes
+     * @throws IOException if reading fails or the end of file is reached
+     */
+    @Override
+    public ByteBuffer read(long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            int bytesRead = channel.read(buffer, position + buffer.position());
+            if (bytesRead < 0)
+            {
+                throw new IOException(
+                        String.format("Failed to read %d bytes at position %d: end of file reached", length, position));
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Closes the source.
+     *
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
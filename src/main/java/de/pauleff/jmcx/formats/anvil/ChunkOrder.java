@@ -0,0 +1,82 @@
+package de.pauleff.jmcx.formats.anvil;
+
+/**
+ * Enumeration of the orders a {@link RegionCompactor} can lay out chunks in.
+ * Spatial orders keep chunks that are close in the world close in the file, which helps reads of whole areas.
+ *
+ * @author Paul Ferlitz
+ */
+public enum ChunkOrder
+{
+    /**
+     * Chunk index order, i.e. row by row along the x-axis. This is the layout {@link AnvilWriter} produces.
+     */
+    INDEX
+            {
+                @Override
+                public int key(int chunkIndex)
+                {
+                    return chunkIndex;
+                }
+            },
+
+    /**
+     * Z-order (Morton) curve, interleaving the bits of the local x- and z-coordinate.
+     */
+    Z_ORDER
+            {
+                @Override
+                public int key(int chunkIndex)
+                {
+                    int x = chunkIndex & 31;
+                    int z = chunkIndex >>> 5;
+                    int key = 0;
+                    for (int bit = 0; bit < 5; bit++)
+                    {
+                        key |= ((x >>> bit) & 1) << (2 * bit);
+                        key |= ((z >>> bit) & 1) << (2 * bit + 1);
+                    }
+                    return key;
+                }
+            },
+
+    /**
+     * Hilbert curve, where consecutive chunks are always direct neighbours in the world.
+     */
+    HILBERT
+            {
+                @Override
+                public int key(int chunkIndex)
+                {
+                    int x = chunkIndex & 31;
+                    int z = chunkIndex >>> 5;
+                    int key = 0;
+                    for (int size = 16; size > 0; size /= 2)
+                    {
+                        int rx = (x & size) > 0 ? 1 : 0;
+                        int rz = (z & size) > 0 ? 1 : 0;
+                        key += size * size * ((3 * rx) ^ rz);
+                        if (rz == 0)
+                        {
+                            if (rx == 1)
+                            {
+                                x = size - 1 - x;
+                                z = size - 1 - z;
+                            }
+                            int swap = x;
+                            x = z;
+                            z = swap;
+                        }
+                    }
+                    return key;
+                }
+            };
+
+    /**
+     * Gets the position of a chunk in this order.
+     *
+     * @param chunkIndex chunk index (0-1023)
+     * @return sort key, unique per chunk index
+     */
+    public abstract int key(int chunkIndex);
+}
@@ -0,0 +1,122 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import de.pauleff.jmcx.api.IChunk;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * {@link Spliterator} reading the stored chunks of a region one at a time.
+ * Covers a range of the present chunk indices taken from the header, splitting halves the range.
+ *
+ * @author Paul Ferlitz
+ */
+final class ChunkSpliterator implements Spliterator<IChunk>
+{
+    private final AnvilReader reader;
+    private final int[] chunkIndices;
+    private int origin;
+    private final int fence;
+
+    /**
+     * Constructs a ChunkSpliterator over all given chunk indices.
+     *
+     * @param reader       {@link AnvilReader} to read chunks from
+     * @param chunkIndices indices of stored chunks in ascending order
+     */
+    ChunkSpliterator(AnvilReader reader, int[] chunkIndices)
+    {
+        this(reader, chunkIndices, 0, chunkIndices.length);
+    }
+
+    private ChunkSpliterator(AnvilReader reader, int[] chunkIndices, int origin, int fence)
+    {
+        this.reader = reader;
+        this.chunkIndices = chunkIndices;
+        this.origin = origin;
+        this.fence = fence;
+    }
+
+    /**
+     * Reads the next intact chunk and passes it to the action. Corrupt chunks are skipped.
+     *
+     * @param action consumer of the chunk
+     * @return true if a chunk was consumed
+     * @throws UncheckedIOException if reading fails
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super IChunk> action)
+    {
+        while (origin < fence)
+        {
+            Optional<IChunk> chunk = readChunk(chunkIndices[origin++]);
+            if (chunk.isPresent())
+            {
+                action.accept(chunk.get());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits off the first half of the remaining chunk indices.
+     *
+     * @return spliterator covering the first half, null if too small to split
+     */
+    @Override
+    public Spliterator<IChunk> trySplit()
+    {
+        int middle = (origin + fence) >>> 1;
+        if (middle <= origin)
+        {
+            return null;
+        }
+        ChunkSpliterator prefix = new ChunkSpliterator(reader, chunkIndices, origin, middle);
+        origin = middle;
+        return prefix;
+    }
+
+    /**
+     * Estimates remaining chunks. Exact unless corrupt chunks are skipped.
+     *
+     * @return number of remaining chunk indices
+     */
+    @Override
+    public long estimateSize()
+    {
+        return fence - origin;
+    }
+
+    /**
+     * Gets spliterator characteristics.
+     *
+     * @return characteristics
+     */
+    @Override
+    public int characteristics()
+    {
+        return ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Reads a chunk through the reader.
+     *
+     * @param chunkIndex chunk index
+     * @return chunk if intact
+     * @throws UncheckedIOException if reading fails
+     */
+    private Optional<IChunk> readChunk(int chunkIndex)
+    {
+        try
+        {
+            return reader.readChunkAtIndex(chunkIndex);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
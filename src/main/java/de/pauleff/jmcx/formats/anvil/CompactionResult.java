@@ -0,0 +1,117 @@
+package de.pauleff.jmcx.formats.anvil;
+
+/**
+ * Summary of a {@link RegionCompactor} run over one or more region files.
+ *
+ * @author Paul Ferlitz
+ */
+public final class CompactionResult
+{
+    private final int regions;
+    private final int regionsCompacted;
+    private final int chunks;
+    private final long bytesBefore;
+    private final long bytesAfter;
+
+    CompactionResult(int regions, int regionsCompacted, int chunks, long bytesBefore, long bytesAfter)
+    {
+        this.regions = regions;
+        this.regionsCompacted = regionsCompacted;
+        this.chunks = chunks;
+        this.bytesBefore = bytesBefore;
+        this.bytesAfter = bytesAfter;
+    }
+
+    /**
+     * Combines this result with another one.
+     *
+     * @param other result to add
+     * @return combined result
+     */
+    CompactionResult plus(CompactionResult other)
+    {
+        return new CompactionResult(regions + other.regions,
+                regionsCompacted + other.regionsCompacted,
+                chunks + other.chunks,
+                bytesBefore + other.bytesBefore,
+                bytesAfter + other.bytesAfter);
+    }
+
+    /**
+     * Gets the number of region files processed.
+     *
+     * @return region count
+     */
+    public int getRegions()
+    {
+        return regions;
+    }
+
+    /**
+     * Gets the number of region files that were rewritten; the others were already compact and in order.
+     *
+     * @return compacted region count
+     */
+    public int getRegionsCompacted()
+    {
+        return regionsCompacted;
+    }
+
+    /**
+     * Gets the number of chunks in the processed files.
+     *
+     * @return chunk count
+     */
+    public int getChunks()
+    {
+        return chunks;
+    }
+
+    /**
+     * Gets the combined size of the files before compaction.
+     *
+     * @return size in bytes
+     */
+    public long getBytesBefore()
+    {
+        return bytesBefore;
+    }
+
+    /**
+     * Gets the combined size of the files after compaction.
+     *
+     * @return size in bytes
+     */
+    public long getBytesAfter()
+    {
+        return bytesAfter;
+    }
+
+    /**
+     * Gets the number of bytes freed by closing holes and truncating the files.
+     *
+     * @return reclaimed size in bytes
+     */
+    public long getBytesReclaimed()
+    {
+        return bytesBefore - bytesAfter;
+    }
+
+    /**
+     * Returns string representation of CompactionResult.
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString()
+    {
+        return "CompactionResult{" +
+                "regions=" + regions +
+                ", regionsCompacted=" + regionsCompacted +
+                ", chunks=" + chunks +
+                ", bytesBefore=" + bytesBefore +
+                ", bytesAfter=" + bytesAfter +
+                ", bytesReclaimed=" + getBytesReclaimed() +
+                '}';
+    }
+}
@@ -0,0 +1,149 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import de.pauleff.jmcx.util.AnvilUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Access to the {@code c.<chunkX>.<chunkZ>.mcc} files holding chunks too large for their region file.
+ * The files sit next to the region file and contain the compressed data without length field or type byte.
+ *
+ * @author Paul Ferlitz
+ */
+final class ExternalChunkFile
+{
+    private ExternalChunkFile()
+    {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Gets the external file of a chunk.
+     *
+     * @param regionFile region file the chunk belongs to
+     * @param chunkX global chunk x-coordinate
+     * @param chunkZ global chunk z-coordinate
+     * @return external chunk file in the region file's directory
+     */
+    static File of(File regionFile, int chunkX, int chunkZ)
+    {
+        return new File(regionFile.getAbsoluteFile().getParentFile(), AnvilUtils.generateExternalChunkFilename(chunkX, chunkZ));
+    }
+
+    /**
+     * Gets the external file of a chunk from the region coordinates in the region file's name and the chunk index,
+     * the same way readers locate it.
+     *
+     * @param regionFile region file named {@code r.<regionX>.<regionZ>.mca}
+     * @param chunkIndex chunk index (0-1023)
+     * @return external chunk file in the region file's directory
+     * @throws IOException if the region coordinates cannot be derived from the filename
+     */
+    static File of(File regionFile, int chunkIndex) throws IOException
+    {
+        int[] regionCoordinates;
+        try
+        {
+            regionCoordinates = AnvilUtils.parseRegionFilename(regionFile.getName());
+        } catch (IllegalArgumentException e)
+        {
+            throw new IOException(
+                    String.format("Chunk %d is stored externally, but its coordinates cannot be derived from filename %s",
+                            chunkIndex, regionFile.getName()), e);
+        }
+
+        int[] chunkCoordinates = AnvilUtils.calculateChunkCoordinates(regionCoordinates[0], regionCoordinates[1], chunkIndex);
+        return of(regionFile, chunkCoordinates[0], chunkCoordinates[1]);
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer to an external chunk file.
+     * The data goes to a synced temporary file first which then replaces the target,
+     * so a mapping of the old file stays valid.
+     *
+     * @param file external chunk file
+     * @param data compressed chunk data, its position is not modified
+     * @return number of bytes written
+     * @throws IOException if writing fails
+     */
+    static long write(File file, ByteBuffer data) throws IOException
+    {
+        commit(stage(file, data), file);
+        return data.remaining();
+    }
+
+    /**
+     * Writes the remaining bytes of a buffer to the temporary file of an external chunk file and syncs it.
+     * The target is left untouched until the temporary file is passed to {@link #commit(Path, File)}.
+     *
+     * @param file external chunk file
+     * @param data compressed chunk data, its position is not modified
+     * @return synced temporary file next to the target
+     * @throws IOException if writing fails
+     */
+    static Path stage(File file, ByteBuffer data) throws IOException
+    {
+        Path temp = file.toPath().resolveSibling(file.getName() + ".tmp");
+        ByteBuffer remaining = data.duplicate();
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while (remaining.hasRemaining())
+            {
+                channel.write(remaining);
+            }
+            channel.force(true);
+        }
+        return temp;
+    }
+
+    /**
+     * Copies another external chunk file to the temporary file of an external chunk file and syncs it.
+     * The target is left untouched until the temporary file is passed to {@link #commit(Path, File)}.
+     *
+     * @param file external chunk file
+     * @param source external chunk file to copy
+     * @return synced temporary file next to the target
+     * @throws IOException if copying fails
+     */
+    static Path stage(File file, File source) throws IOException
+    {
+        Path temp = file.toPath().resolveSibling(file.getName() + ".tmp");
+        Files.copy(source.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE))
+        {
+            channel.force(true);
+        }
+        return temp;
+    }
+
+    /**
+     * Replaces an external chunk file with its temporary file written by {@link #stage(File, ByteBuffer)}.
+     *
+     * @param temp synced temporary file
+     * @param file external chunk file
+     * @throws IOException if the rename fails
+     */
+    static void commit(Path temp, File file) throws IOException
+    {
+        FileCommit.replace(temp, file.toPath());
+    }
+
+    /**
+     * Deletes an external chunk file left over from a chunk that now fits into its region file.
+     *
+     * @param file external chunk file
+     * @throws IOException if the file exists but cannot be deleted
+     */
+    static void delete(File file) throws IOException
+    {
+        Files.deleteIfExists(file.toPath());
+    }
+}
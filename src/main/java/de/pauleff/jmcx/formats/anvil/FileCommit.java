@@ -0,0 +1,59 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files with fully written temporary files by renaming them, so readers never see a partially written file.
+ *
+ * @author Paul Ferlitz
+ */
+final class FileCommit
+{
+    private FileCommit()
+    {
+        throw new UnsupportedOperationException("Utility class cannot be instantiated");
+    }
+
+    /**
+     * Renames a temporary file over its target, atomically where the file system supports it,
+     * and syncs the directory so the rename survives a crash.
+     *
+     * @param tempFile written temporary file in the same directory as the target
+     * @param target file to replace
+     * @throws IOException if the rename fails
+     */
+    static void replace(Path tempFile, Path target) throws IOException
+    {
+        try
+        {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e)
+        {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Syncs a directory so a rename within it survives a crash.
+     * Not all platforms allow opening directories; the sync is skipped there.
+     *
+     * @param directory directory to sync
+     */
+    private static void syncDirectory(Path directory)
+    {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        } catch (IOException e)
+        {
+            // Directory sync is best effort
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link RegionSource} mapping the complete region file into memory.
+ * Reads return read-only slices of the mapping, so no sector data is copied onto the heap.
+ * The mapping stays valid after {@link #close()} until it is garbage collected, which keeps
+ * slices handed out earlier readable.
+ *
+ * @author Paul Ferlitz
+ */
+class MappedRegionSource implements RegionSource
+{
+    private final MappedByteBuffer mapping;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructs a MappedRegionSource.
+     *
+     * @param file region file to map
+     * @throws IOException if the file cannot be opened, is too large to map or mapping fails
+     */
+    MappedRegionSource(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE)
+            {
+                throw new IOException(
+                        String.format("File size %d bytes is too large to be memory-mapped", fileSize));
+            }
+            this.mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        }
+    }
+
+    /**
+     * Gets file size in bytes.
+     *
+     * @return file size
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public long size() throws IOException
+    {
+        ensureOpen();
+        return mapping.capacity();
+    }
+
+    /**
+     * Reads a range of the file.
+     *
+     * @param position absolute file position
+     * @param length   number of bytes to read
+     * @return buffer holding the requested bytes
+     * @throws IOException if reading fails
+     */
+    @Override
+    public ByteBuffer read(long position, int length) throws IOException
+    {
+        ensureOpen();
+        if (position < 0 || length < 0 || position + length > mapping.capacity())
+        {
+            throw new IOException(
+                    String.format("Failed to read %d bytes at position %d: range exceeds file size %d",
+                            length, position, mapping.capacity()));
+        }
+        return mapping.slice((int) position, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Marks the source as closed. The mapping itself is released once it becomes unreachable.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+    }
+
+    /**
+     * Ensures the source has not been closed.
+     *
+     * @throws IOException if the source is closed
+     */
+    private void ensureOpen() throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("Region source is closed");
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link RegionSource} reading through a {@link RandomAccessFile} into freshly allocated heap buffers.
+ * Seek and read are performed under a lock, so concurrent reads are correct but serialized.
+ *
+ * @author Paul Ferlitz
+ */
+class RandomAccessRegionSource implements RegionSource
+{
+    private final RandomAccessFile raf;
+
+    /**
+     * Constructs a RandomAccessRegionSource.
+     *
+     * @param file region file to open
+     * @throws IOException if the file cannot be opened
+     */
+    RandomAccessRegionSource(File file) throws IOException
+    {
+        this.raf = new RandomAccessFile(file, "r");
+    }
+
+    /**
+     * Gets file size in bytes.
+     *
+     * @return file size
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public synchronized long size() throws IOException
+    {
+        return raf.length();
+    }
+
+    /**
+     * Reads a range of the file.
+     *
+     * @param position absolute file position
+     * @param length   number of bytes to read
+     * @return buffer holding the requested bytes
+     * @throws IOException if reading fails
+     */
+    @Override
+    public synchronized ByteBuffer read(long position, int length) throws IOException
+    {
+        byte[] data = new byte[length];
+        raf.seek(position);
+        try
+        {
+            raf.readFully(data);
+        } catch (EOFException e)
+        {
+            throw new IOException(
+                    String.format("Failed to read %d bytes at position %d: end of file reached", length, position), e);
+        }
+        return ByteBuffer.wrap(data);
+    }
+
+    /**
+     * Closes the source.
+     *
+     * @throws IOException if I/O error occurs
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        raf.close();
+    }
+}
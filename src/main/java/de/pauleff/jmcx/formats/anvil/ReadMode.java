@@ -0,0 +1,28 @@
+package de.pauleff.jmcx.formats.anvil;
+
+/**
+ * Enumeration of the I/O strategies an {@link AnvilReader} can use to access a region file.
+ *
+ * @author Paul Ferlitz
+ */
+public enum ReadMode
+{
+    /**
+     * Seeks and reads through a {@link java.io.RandomAccessFile}, copying every requested range onto the heap.
+     * Concurrent reads are serialized on the shared file position.
+     */
+    RANDOM_ACCESS,
+
+    /**
+     * Maps the whole region file into memory once and hands out read-only slices of the mapping.
+     * Avoids per-read system calls and heap copies of sector data, well suited for scanning many files.
+     * Safe for concurrent reads.
+     */
+    MEMORY_MAPPED,
+
+    /**
+     * Reads through positional {@link java.nio.channels.FileChannel} calls that share no file position.
+     * Safe for concurrent reads from many (virtual) threads, e.g. when serving random chunks of one file.
+     */
+    POSITIONAL
+}
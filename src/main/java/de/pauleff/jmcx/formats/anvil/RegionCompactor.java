@@ -0,0 +1,224 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import de.pauleff.jmcx.core.FileStamp;
+import de.pauleff.jmcx.core.RegionHeader;
+import de.pauleff.jmcx.formats.FileFormat;
+import de.pauleff.jmcx.util.AnvilUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import static de.pauleff.jmcx.util.AnvilConstants.CHUNKS_PER_REGION;
+import static de.pauleff.jmcx.util.AnvilConstants.EXTERNAL_CHUNK_FLAG;
+import static de.pauleff.jmcx.util.AnvilConstants.SECTOR_SIZE_BYTES;
+
+/**
+ * Closes the holes left in region files by chunks that were rewritten into new sectors.
+ * Live chunks are packed from sector 2 in the configured {@link ChunkOrder} and copied sector by sector,
+ * nothing is decompressed. Sectors allocated beyond a chunk's stored length are dropped as well.
+ * The compacted file is written next to the original, synced and renamed over it, so the region stays readable throughout.
+ * External {@code .mcc} files are not affected. Files that are already compact and in order are left untouched.
+ *
+ * @author Paul Ferlitz
+ */
+public class RegionCompactor
+{
+    private final ChunkOrder order;
+
+    /**
+     * Creates a compactor laying out chunks in index order, like {@link AnvilWriter}.
+     */
+    public RegionCompactor()
+    {
+        this(ChunkOrder.INDEX);
+    }
+
+    /**
+     * Creates a compactor.
+     *
+     * @param order order to lay out chunks in
+     * @throws IllegalArgumentException if order is null
+     */
+    public RegionCompactor(ChunkOrder order)
+    {
+        if (order == null)
+        {
+            throw new IllegalArgumentException("Chunk order cannot be null");
+        }
+        this.order = order;
+    }
+
+    /**
+     * Compacts every region file of a directory, one region at a time.
+     *
+     * @param directory directory containing .mca files
+     * @return combined result of all regions
+     * @throws IOException if the directory is invalid or a region cannot be compacted
+     */
+    public CompactionResult compactDirectory(File directory) throws IOException
+    {
+        File[] regionFiles = directory.listFiles(file ->
+                file.isFile() && FileFormat.detectFormat(file) == FileFormat.ANVIL);
+        if (regionFiles == null)
+        {
+            throw new IOException("Not a readable directory: " + directory);
+        }
+
+        Arrays.sort(regionFiles);
+        CompactionResult total = new CompactionResult(0, 0, 0, 0, 0);
+        for (File regionFile : regionFiles)
+        {
+            total = total.plus(compact(regionFile));
+        }
+        return total;
+    }
+
+    /**
+     * Compacts a single region file in place.
+     *
+     * @param regionFile region file to compact
+     * @return result of this region
+     * @throws IOException if the header is invalid or reading, writing or replacing the file fails
+     */
+    public CompactionResult compact(File regionFile) throws IOException
+    {
+        long bytesBefore = regionFile.length();
+        Path tempFile = regionFile.toPath().resolveSibling(regionFile.getName() + ".tmp");
+        int[] chunkIndices;
+        long bytesAfter;
+
+        try (AnvilReader reader = new AnvilReader(regionFile, ReadMode.POSITIONAL);
+             FileChannel source = FileChannel.open(regionFile.toPath(), StandardOpenOption.READ))
+        {
+            reader.validateHeaderEntries();
+            RegionHeader header = reader.getHeader();
+            chunkIndices = Arrays.stream(header.getChunkIndices()).boxed()
+                    .sorted(Comparator.comparingInt(order::key))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            int[] offsets = new int[CHUNKS_PER_REGION];
+            int[] sectorCounts = new int[CHUNKS_PER_REGION];
+            int[] timestamps = new int[CHUNKS_PER_REGION];
+            int currentSectorOffset = RegionHeader.HEADER_SECTORS;
+            boolean unchanged = true;
+            for (int i = 0; i < CHUNKS_PER_REGION; i++)
+            {
+                timestamps[i] = header.getTimestamp(i);
+            }
+            for (int chunkIndex : chunkIndices)
+            {
+                offsets[chunkIndex] = currentSectorOffset;
+                sectorCounts[chunkIndex] = getUsedSectorCount(source, header, chunkIndex);
+                unchanged &= offsets[chunkIndex] == header.getOffset(chunkIndex)
+                        && sectorCounts[chunkIndex] == header.getSectorCount(chunkIndex);
+                currentSectorOffset += sectorCounts[chunkIndex];
+            }
+
+            bytesAfter = (long) currentSectorOffset * SECTOR_SIZE_BYTES;
+            if (unchanged && bytesBefore == bytesAfter)
+            {
+                return new CompactionResult(1, 0, chunkIndices.length, bytesBefore, bytesAfter);
+            }
+
+            writeCompacted(source, header, RegionHeader.of(offsets, sectorCounts, timestamps), chunkIndices, tempFile);
+        }
+
+        FileCommit.replace(tempFile, regionFile.toPath());
+        FileStamp.advance(regionFile);
+        return new CompactionResult(1, 1, chunkIndices.length, bytesBefore, bytesAfter);
+    }
+
+    /**
+     * Writes the compacted region to a temporary file and syncs it. The file is deleted again if writing fails.
+     *
+     * @param source channel of the original region file
+     * @param header header of the original region file
+     * @param compactedHeader header with the new chunk locations
+     * @param chunkIndices indices of the live chunks in layout order
+     * @param tempFile temporary file to write
+     * @throws IOException if copying or writing fails
+     */
+    private static void writeCompacted(FileChannel source, RegionHeader header, RegionHeader compactedHeader,
+                                       int[] chunkIndices, Path tempFile) throws IOException
+    {
+        boolean written = false;
+        try (FileChannel target = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            ByteBuffer headerBuffer = compactedHeader.toByteBuffer();
+            while (headerBuffer.hasRemaining())
+            {
+                target.write(headerBuffer);
+            }
+
+            for (int chunkIndex : chunkIndices)
+            {
+                long position = header.getFilePosition(chunkIndex);
+                long end = position + (long) compactedHeader.getSectorCount(chunkIndex) * SECTOR_SIZE_BYTES;
+                target.position(compactedHeader.getFilePosition(chunkIndex));
+                while (position < end)
+                {
+                    long transferred = source.transferTo(position, end - position, target);
+                    if (transferred <= 0)
+                    {
+                        throw new IOException(
+                                String.format("Unexpected end of file while copying chunk %d of %s", chunkIndex, tempFile.getFileName()));
+                    }
+                    position += transferred;
+                }
+            }
+
+            target.force(true);
+            written = true;
+        } finally
+        {
+            if (!written)
+            {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of sectors a chunk actually uses, based on its stored length field.
+     * Falls back to the allocated sector count if the length field does not fit the allocation.
+     *
+     * @param source channel of the region file
+     * @param header header of the region file
+     * @param chunkIndex chunk index (0-1023)
+     * @return used sector count, between 1 and the allocated sector count
+     * @throws IOException if reading the length field fails
+     */
+    private static int getUsedSectorCount(FileChannel source, RegionHeader header, int chunkIndex) throws IOException
+    {
+        int allocated = header.getSectorCount(chunkIndex);
+        ByteBuffer chunkHeader = ByteBuffer.allocate(5);
+        long position = header.getFilePosition(chunkIndex);
+        while (chunkHeader.hasRemaining())
+        {
+            if (source.read(chunkHeader, position + chunkHeader.position()) < 0)
+            {
+                return allocated;
+            }
+        }
+
+        if ((chunkHeader.get(4) & EXTERNAL_CHUNK_FLAG) != 0)
+        {
+            return 1;
+        }
+        int length = chunkHeader.getInt(0);
+        if (length < 0 || length > allocated * SECTOR_SIZE_BYTES - 5)
+        {
+            return allocated;
+        }
+        return Math.max(1, AnvilUtils.calculateSectorCount(5 + length));
+    }
+}
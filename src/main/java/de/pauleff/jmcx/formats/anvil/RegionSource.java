@@ -0,0 +1,53 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Byte-level access to a region file, abstracting over the {@link ReadMode} used by {@link AnvilReader}.
+ * Implementations must be safe to call from multiple threads.
+ *
+ * @author Paul Ferlitz
+ */
+interface RegionSource extends Closeable
+{
+    /**
+     * Opens a source for the given file using the requested read mode.
+     *
+     * @param file region file to open
+     * @param mode {@link ReadMode} to use
+     * @return new {@link RegionSource}
+     * @throws IOException if the file cannot be opened
+     */
+    static RegionSource open(File file, ReadMode mode) throws IOException
+    {
+        return switch (mode)
+        {
+            case RANDOM_ACCESS -> new RandomAccessRegionSource(file);
+            case MEMORY_MAPPED -> new MappedRegionSource(file);
+            case POSITIONAL -> new ChannelRegionSource(file);
+        };
+    }
+
+    /**
+     * Gets the size of the underlying file.
+     *
+     * @return size in bytes
+     * @throws IOException if I/O error occurs
+     */
+    long size() throws IOException;
+
+    /**
+     * Reads a range of the file.
+     * The returned buffer is big-endian, positioned at 0 and limited to exactly {@code length} bytes.
+     * It may be a read-only view of shared memory and must not be assumed to be array-backed.
+     *
+     * @param position absolute file position to start reading at
+     * @param length   number of bytes to read
+     * @return buffer holding the requested bytes
+     * @throws IOException if the range lies outside the file or reading fails
+     */
+    ByteBuffer read(long position, int length) throws IOException;
+}
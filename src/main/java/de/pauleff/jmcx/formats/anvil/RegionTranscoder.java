@@ -0,0 +1,311 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import de.pauleff.jmcx.compression.ChunkCodec;
+import de.pauleff.jmcx.compression.CodecRegistry;
+import de.pauleff.jmcx.compression.CompressionPolicy;
+import de.pauleff.jmcx.core.ChunkPayload;
+import de.pauleff.jmcx.core.FileStamp;
+import de.pauleff.jmcx.core.RegionHeader;
+import de.pauleff.jmcx.exceptions.ChunkTooLargeException;
+import de.pauleff.jmcx.formats.FileFormat;
+import de.pauleff.jmcx.util.AnvilUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import static de.pauleff.jmcx.util.AnvilConstants.CHUNKS_PER_REGION;
+import static de.pauleff.jmcx.util.AnvilConstants.SECTOR_SIZE_BYTES;
+
+/**
+ * Recompresses region files to another codec without parsing any NBT.
+ * Each chunk's raw payload is decompressed and compressed again on the executor. Only a bounded window of
+ * chunks is in flight at once, so memory use does not grow with the region size.
+ * The target file gets the same layout as {@link AnvilWriter}: chunks in index order, packed from sector 2.
+ * Chunks that already use the target codec are copied unchanged. Corrupt chunks are reported and left out.
+ *
+ * @author Paul Ferlitz
+ */
+public class RegionTranscoder
+{
+    private final ChunkCodec targetCodec;
+    private final CompressionPolicy policy;
+    private final Executor executor;
+    private final int maxChunksInFlight;
+
+    /**
+     * Creates a transcoder using the default compression settings and the common fork-join pool.
+     *
+     * @param targetCodec codec to recompress chunks with
+     * @throws IllegalArgumentException if targetCodec is null
+     */
+    public RegionTranscoder(ChunkCodec targetCodec)
+    {
+        this(targetCodec, CompressionPolicy.DEFAULT, ForkJoinPool.commonPool(), 2 * ForkJoinPool.getCommonPoolParallelism() + 2);
+    }
+
+    /**
+     * Creates a transcoder.
+     *
+     * @param targetCodec codec to recompress chunks with
+     * @param policy compression settings
+     * @param executor executor reading and recompressing chunks
+     * @param maxChunksInFlight maximum number of chunks held in memory at once
+     * @throws IllegalArgumentException if an argument is null or maxChunksInFlight is not positive
+     */
+    public RegionTranscoder(ChunkCodec targetCodec, CompressionPolicy policy, Executor executor, int maxChunksInFlight)
+    {
+        if (targetCodec == null || policy == null || executor == null)
+        {
+            throw new IllegalArgumentException("Target codec, compression policy and executor cannot be null");
+        }
+        if (maxChunksInFlight <= 0)
+        {
+            throw new IllegalArgumentException("Maximum chunks in flight must be positive, got: " + maxChunksInFlight);
+        }
+        this.targetCodec = targetCodec;
+        this.policy = policy;
+        this.executor = executor;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * Transcodes every region file of a directory into another directory, one region at a time.
+     *
+     * @param sourceDirectory directory containing .mca files
+     * @param targetDirectory directory to write the transcoded files to, created if missing
+     * @return combined result of all regions
+     * @throws IOException if a directory is invalid or a region cannot be transcoded
+     */
+    public TranscodeResult transcodeDirectory(File sourceDirectory, File targetDirectory) throws IOException
+    {
+        File[] regionFiles = sourceDirectory.listFiles(file ->
+                file.isFile() && FileFormat.detectFormat(file) == FileFormat.ANVIL);
+        if (regionFiles == null)
+        {
+            throw new IOException("Not a readable directory: " + sourceDirectory);
+        }
+        Files.createDirectories(targetDirectory.toPath());
+
+        Arrays.sort(regionFiles);
+        TranscodeResult total = new TranscodeResult(0, 0, 0, 0, 0, 0);
+        for (File regionFile : regionFiles)
+        {
+            total = total.plus(transcode(regionFile, new File(targetDirectory, regionFile.getName())));
+        }
+        return total;
+    }
+
+    /**
+     * Transcodes a single region file.
+     *
+     * @param source region file to read
+     * @param target region file to write, replaced if it exists
+     * @return result of this region
+     * @throws IOException if reading the header or writing fails
+     * @throws IllegalArgumentException if source and target are the same file
+     */
+    public TranscodeResult transcode(File source, File target) throws IOException
+    {
+        if (target.exists() && Files.isSameFile(source.toPath(), target.toPath()))
+        {
+            throw new IllegalArgumentException("Source and target must be different files: " + source);
+        }
+
+        try (AnvilReader reader = new AnvilReader(source, ReadMode.POSITIONAL);
+             FileChannel channel = FileChannel.open(target.toPath(),
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            reader.validateHeaderEntries();
+            RegionHeader header = reader.getHeader();
+            int[] chunkIndices = header.getChunkIndices();
+
+            int[] offsets = new int[CHUNKS_PER_REGION];
+            int[] sectorCounts = new int[CHUNKS_PER_REGION];
+            int[] timestamps = new int[CHUNKS_PER_REGION];
+            int currentSectorOffset = RegionHeader.HEADER_SECTORS;
+            int transcoded = 0;
+            int copied = 0;
+            int dropped = 0;
+            long externalBytes = 0;
+
+            Deque<CompletableFuture<TranscodedChunk>> window = new ArrayDeque<>();
+            int submitted = 0;
+            try
+            {
+                for (int chunkIndex : chunkIndices)
+                {
+                    while (submitted < chunkIndices.length && window.size() < maxChunksInFlight)
+                    {
+                        int index = chunkIndices[submitted++];
+                        window.add(CompletableFuture.supplyAsync(() -> transcodeChunk(reader, index), executor));
+                    }
+
+                    TranscodedChunk chunk = awaitChunk(window.poll());
+                    if (chunk == null)
+                    {
+                        dropped++;
+                        continue;
+                    }
+
+                    if (chunk.copied)
+                    {
+                        copied++;
+                    } else
+                    {
+                        transcoded++;
+                    }
+
+                    ChunkPayload payload = chunk.payload;
+
+                    ByteBuffer sectors = payload.getSectorBuffer();
+                    long position = (long) currentSectorOffset * SECTOR_SIZE_BYTES;
+                    while (sectors.hasRemaining())
+                    {
+                        position += channel.write(sectors, position);
+                    }
+
+                    if (payload.isExternal())
+                    {
+                        externalBytes += ExternalChunkFile.write(getExternalFile(target, chunkIndex), payload.getDataBuffer());
+                    }
+
+                    offsets[chunkIndex] = currentSectorOffset;
+                    sectorCounts[chunkIndex] = payload.getSectorCount();
+                    timestamps[chunkIndex] = header.getTimestamp(chunkIndex);
+                    currentSectorOffset += payload.getSectorCount();
+                }
+            } finally
+            {
+                CompletableFuture.allOf(window.toArray(new CompletableFuture<?>[0])).handle((result, e) -> null).join();
+            }
+
+            ByteBuffer headerBuffer = RegionHeader.of(offsets, sectorCounts, timestamps).toByteBuffer();
+            long position = 0;
+            while (headerBuffer.hasRemaining())
+            {
+                position += channel.write(headerBuffer, position);
+            }
+
+            return new TranscodeResult(1, transcoded, copied, dropped, source.length(), channel.size() + externalBytes);
+        } finally
+        {
+            FileStamp.advance(target);
+        }
+    }
+
+    /**
+     * Gets the external {@code .mcc} file for a chunk of the target region that exceeds the region file's sector limit.
+     *
+     * @param target region file being written
+     * @param chunkIndex chunk index (0-1023)
+     * @return external chunk file next to the target
+     * @throws IOException if the chunk coordinates cannot be derived from the target's filename
+     */
+    private static File getExternalFile(File target, int chunkIndex) throws IOException
+    {
+        int[] regionCoordinates;
+        try
+        {
+            regionCoordinates = AnvilUtils.parseRegionFilename(target.getName());
+        } catch (IllegalArgumentException e)
+        {
+            throw new IOException("Cannot store external chunk " + chunkIndex + ": " + e.getMessage(), e);
+        }
+        int[] chunkCoordinates = AnvilUtils.calculateChunkCoordinates(regionCoordinates[0], regionCoordinates[1], chunkIndex);
+        return ExternalChunkFile.of(target, chunkCoordinates[0], chunkCoordinates[1]);
+    }
+
+    /**
+     * Reads a chunk's payload and recompresses it with the target codec.
+     *
+     * @param reader reader of the source region
+     * @param chunkIndex chunk index (0-1023)
+     * @return transcoded chunk, or null if the chunk is corrupt or uses an unknown codec
+     */
+    private TranscodedChunk transcodeChunk(AnvilReader reader, int chunkIndex)
+    {
+        try
+        {
+            ChunkPayload payload = reader.readPayloadAtIndex(chunkIndex);
+            if (usesTargetCodec(payload))
+            {
+                return new TranscodedChunk(payload, true);
+            }
+            return new TranscodedChunk(payload.transcode(targetCodec, policy), false);
+        } catch (IOException | ChunkTooLargeException corruptionException)
+        {
+            System.err.printf("Warning: Dropping corrupt chunk at index %d of %s: %s%n",
+                    chunkIndex, reader.getFilePath(), corruptionException.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether a payload is already compressed with the target codec.
+     *
+     * @param payload payload to check
+     * @return true if type and, for custom codecs, id match
+     * @throws IOException if the payload's custom codec header is invalid or unknown
+     */
+    private boolean usesTargetCodec(ChunkPayload payload) throws IOException
+    {
+        if (payload.getCompressionType() != targetCodec.getType())
+        {
+            return false;
+        }
+        return payload.getCompressionType() != CodecRegistry.CUSTOM_TYPE || payload.getCodec().getId().equals(targetCodec.getId());
+    }
+
+    /**
+     * Waits for a chunk task, unwrapping its failure.
+     *
+     * @param future chunk task
+     * @return transcoded chunk, or null if the chunk was dropped
+     * @throws IOException if the task failed with an I/O error
+     */
+    private static TranscodedChunk awaitChunk(CompletableFuture<TranscodedChunk> future) throws IOException
+    {
+        try
+        {
+            return future.join();
+        } catch (CompletionException e)
+        {
+            if (e.getCause() instanceof UncheckedIOException uncheckedException)
+            {
+                throw uncheckedException.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException)
+            {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Payload of a chunk and whether it was copied unchanged.
+     */
+    private static final class TranscodedChunk
+    {
+        private final ChunkPayload payload;
+        private final boolean copied;
+
+        private TranscodedChunk(ChunkPayload payload, boolean copied)
+        {
+            this.payload = payload;
+            this.copied = copied;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import de.pauleff.jmcx.core.RegionHeader;
+
+import java.util.BitSet;
+
+import static de.pauleff.jmcx.util.AnvilConstants.CHUNKS_PER_REGION;
+
+/**
+ * Bitmap of the sectors in use by a region file, built from its header.
+ * Allocation is first fit: the lowest hole large enough is reused, otherwise sectors are appended after the last used one.
+ *
+ * @author Paul Ferlitz
+ */
+final class SectorAllocator
+{
+    private final BitSet used = new BitSet();
+
+    /**
+     * Constructs a SectorAllocator object marking the header and all chunk sectors as used.
+     *
+     * @param header {@link RegionHeader} of the region file
+     */
+    SectorAllocator(RegionHeader header)
+    {
+        used.set(0, RegionHeader.HEADER_SECTORS);
+        for (int i = 0; i < CHUNKS_PER_REGION; i++)
+        {
+            if (header.hasChunk(i))
+            {
+                used.set(header.getOffset(i), header.getOffset(i) + header.getSectorCount(i));
+            }
+        }
+    }
+
+    /**
+     * Allocates a run of consecutive sectors.
+     *
+     * @param sectorCount number of sectors needed
+     * @return offset of the first allocated sector
+     */
+    int allocate(int sectorCount)
+    {
+        int start = used.nextClearBit(RegionHeader.HEADER_SECTORS);
+        while (true)
+        {
+            int end = used.nextSetBit(start);
+            if (end < 0 || end - start >= sectorCount)
+            {
+                used.set(start, start + sectorCount);
+                return start;
+            }
+            start = used.nextClearBit(end);
+        }
+    }
+
+    /**
+     * Releases sectors no longer referenced by the header.
+     *
+     * @param offset offset of the first sector
+     * @param sectorCount number of sectors
+     */
+    void free(int offset, int sectorCount)
+    {
+        used.clear(Math.max(offset, RegionHeader.HEADER_SECTORS), offset + sectorCount);
+    }
+}
@@ -0,0 +1,101 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Queues consecutive sector buffers of a region file and writes them with gathering writes,
+ * so a whole region goes out in a handful of system calls instead of a seek and a write per chunk.
+ * The queued buffers are referenced, not copied, and must not change until they are flushed.
+ *
+ * @author Paul Ferlitz
+ */
+final class SectorBatch
+{
+    /**
+     * Buffers passed to a single gathering write, matching the usual IOV_MAX.
+     */
+    private static final int MAX_BUFFERS_PER_WRITE = 1024;
+
+    private final FileChannel target;
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    private long position;
+
+    /**
+     * Creates a batch writing to a channel.
+     *
+     * @param target channel of the file being written
+     * @param position file position of the first queued buffer
+     * @throws IOException if positioning the channel fails
+     */
+    SectorBatch(FileChannel target, long position) throws IOException
+    {
+        this.target = target;
+        this.position = position;
+        target.position(position);
+    }
+
+    /**
+     * Queues the remaining bytes of a buffer after everything queued so far.
+     *
+     * @param sectors buffer to write, its position is not modified
+     */
+    void add(ByteBuffer sectors)
+    {
+        ByteBuffer buffer = sectors.duplicate();
+        buffers.add(buffer);
+        position += buffer.remaining();
+    }
+
+    /**
+     * Moves the write position. Queued buffers are flushed first if the position changes.
+     *
+     * @param newPosition file position of the next queued buffer
+     * @throws IOException if flushing or positioning the channel fails
+     */
+    void seek(long newPosition) throws IOException
+    {
+        if (newPosition != position)
+        {
+            flush();
+            target.position(newPosition);
+            position = newPosition;
+        }
+    }
+
+    /**
+     * Writes all queued buffers and hands out the channel for writes that bypass the batch, e.g. transfers.
+     * Such writes must be reported through {@link #skip(long)}.
+     *
+     * @return channel positioned after the last queued buffer
+     * @throws IOException if writing fails
+     */
+    FileChannel flush() throws IOException
+    {
+        ByteBuffer[] pending = buffers.toArray(new ByteBuffer[0]);
+        int first = 0;
+        while (first < pending.length)
+        {
+            target.write(pending, first, Math.min(pending.length - first, MAX_BUFFERS_PER_WRITE));
+            while (first < pending.length && !pending[first].hasRemaining())
+            {
+                first++;
+            }
+        }
+        buffers.clear();
+        return target;
+    }
+
+    /**
+     * Accounts for bytes written directly to the flushed channel.
+     *
+     * @param bytes number of bytes written
+     */
+    void skip(long bytes)
+    {
+        position += bytes;
+    }
+}
@@ -0,0 +1,134 @@
+package de.pauleff.jmcx.formats.anvil;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Immutable setting for when an {@link AsyncAnvilWriter} forces written chunks to disk.
+ *
+ * @author Paul Ferlitz
+ */
+public final class SyncPolicy
+{
+    /**
+     * Syncs after every batch. Futures complete once their chunk is durable.
+     * An {@link AnvilWriter} additionally syncs each chunk before updating its header entry,
+     * so a batch of n chunks costs n + 1 syncs and a crash never leaves a header entry pointing to missing data.
+     */
+    public static final SyncPolicy PER_BATCH = new SyncPolicy(Mode.PER_BATCH, Duration.ZERO);
+
+    /**
+     * Never syncs explicitly and leaves it to the operating system. Futures complete once their chunk is written.
+     * An {@link AnvilWriter} skips its per-chunk syncs as well, after a crash chunks written since the operating
+     * system last flushed the file may be corrupt. External chunk files are still synced when written.
+     */
+    public static final SyncPolicy NEVER = new SyncPolicy(Mode.NEVER, Duration.ZERO);
+
+    private final Mode mode;
+    private final Duration interval;
+
+    private SyncPolicy(Mode mode, Duration interval)
+    {
+        this.mode = mode;
+        this.interval = interval;
+    }
+
+    /**
+     * Creates a policy syncing at a fixed interval if anything was written since the last sync.
+     * Futures complete once their chunk is written, durability follows with the next sync.
+     * An {@link AnvilWriter} skips its per-chunk syncs, after a crash chunks written since the last sync may be corrupt.
+     * External chunk files are still synced when written.
+     *
+     * @param interval time between syncs
+     * @return sync policy
+     * @throws IllegalArgumentException if interval is null or not positive
+     */
+    public static SyncPolicy periodic(Duration interval)
+    {
+        if (interval == null || interval.isZero() || interval.isNegative())
+        {
+            throw new IllegalArgumentException("Sync interval must be positive, got: " + interval);
+        }
+        return new SyncPolicy(Mode.PERIODIC, interval);
+    }
+
+    /**
+     * Gets when chunks are synced.
+     *
+     * @return sync mode
+     */
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * Gets the time between syncs of a periodic policy.
+     *
+     * @return sync interval, zero unless the mode is {@link Mode#PERIODIC}
+     */
+    public Duration getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * Checks equality of all settings.
+     *
+     * @param o other object
+     * @return true if all settings are equal
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (!(o instanceof SyncPolicy that)) return false;
+        return mode == that.mode && interval.equals(that.interval);
+    }
+
+    /**
+     * Computes hash code over all settings.
+     *
+     * @return hash code
+     */
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(mode, interval);
+    }
+
+    /**
+     * Returns string representation of SyncPolicy.
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString()
+    {
+        return "SyncPolicy{" +
+                "mode=" + mode +
+                ", interval=" + interval +
+                '}';
+    }
+
+    /**
+     * When chunks are forced to disk.
+     */
+    public enum Mode
+    {
+        /**
+         * After every batch.
+         */
+        PER_BATCH,
+
+        /**
+         * At a fixed interval.
+         */
+        PERIODIC,
+
+        /**
+         * Never explicitly.
+         */
+        NEVER
+    }
+}
@@ -0,0 +1,120 @@
+package de.pauleff.jmcx.formats.anvil;
+
+/**
+ * Summary of a {@link RegionTranscoder} run over one or more region files.
+ *
+ * @author Paul Ferlitz
+ */
+public final class TranscodeResult
+{
+    private final int regions;
+    private final int chunksTranscoded;
+    private final int chunksCopied;
+    private final int chunksDropped;
+    private final long bytesRead;
+    private final long bytesWritten;
+
+    TranscodeResult(int regions, int chunksTranscoded, int chunksCopied, int chunksDropped, long bytesRead, long bytesWritten)
+    {
+        this.regions = regions;
+        this.chunksTranscoded = chunksTranscoded;
+        this.chunksCopied = chunksCopied;
+        this.chunksDropped = chunksDropped;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+    }
+
+    /**
+     * Combines this result with another one.
+     *
+     * @param other result to add
+     * @return combined result
+     */
+    TranscodeResult plus(TranscodeResult other)
+    {
+        return new TranscodeResult(regions + other.regions,
+                chunksTranscoded + other.chunksTranscoded,
+                chunksCopied + other.chunksCopied,
+                chunksDropped + other.chunksDropped,
+                bytesRead + other.bytesRead,
+                bytesWritten + other.bytesWritten);
+    }
+
+    /**
+     * Gets the number of region files processed.
+     *
+     * @return region count
+     */
+    public int getRegions()
+    {
+        return regions;
+    }
+
+    /**
+     * Gets the number of chunks recompressed with the target codec.
+     *
+     * @return transcoded chunk count
+     */
+    public int getChunksTranscoded()
+    {
+        return chunksTranscoded;
+    }
+
+    /**
+     * Gets the number of chunks that already used the target codec and were copied unchanged.
+     *
+     * @return copied chunk count
+     */
+    public int getChunksCopied()
+    {
+        return chunksCopied;
+    }
+
+    /**
+     * Gets the number of corrupt chunks left out of the target file.
+     *
+     * @return dropped chunk count
+     */
+    public int getChunksDropped()
+    {
+        return chunksDropped;
+    }
+
+    /**
+     * Gets the combined size of the source files.
+     *
+     * @return size in bytes
+     */
+    public long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+    /**
+     * Gets the combined size of the target files.
+     *
+     * @return size in bytes
+     */
+    public long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns string representation of TranscodeResult.
+     *
+     * @return string representation
+     */
+    @Override
+    public String toString()
+    {
+        return "TranscodeResult{" +
+                "regions=" + regions +
+                ", chunksTranscoded=" + chunksTranscoded +
+                ", chunksCopied=" + chunksCopied +
+                ", chunksDropped=" + chunksDropped +
+                ", bytesRead=" + bytesRead +
+                ", bytesWritten=" + bytesWritten +
+                '}';
+    }
+}
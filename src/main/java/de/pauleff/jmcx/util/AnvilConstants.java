@@ -9,6 +9,9 @@ public final class AnvilConstants
 {
     public static final int SECTOR_SIZE_BYTES = 4096;
     public static final int MAX_CHUNK_SIZE_BYTES = 1048576;
+    public static final int MAX_CHUNK_SECTORS = 255;
+    public static final int MAX_EXTERNAL_CHUNK_SIZE_BYTES = 256 * 1024 * 1024;
+    public static final int EXTERNAL_CHUNK_FLAG = 0x80;
     public static final int CHUNKS_PER_REGION = 1024;
     public static final int CHUNKS_PER_REGION_SIDE = 32;
     public static final int CHUNKS_PER_REGION_SIDE_SHIFT = 5;
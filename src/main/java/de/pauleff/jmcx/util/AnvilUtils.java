@@ -160,6 +160,18 @@ public class AnvilUtils
         return "r." + regionX + "." + regionZ + "." + FileFormat.ANVIL.getExtension();
     }
 
+    /**
+     * Generates the filename of the external file holding a chunk too large for its region file.
+     *
+     * @param chunkX global chunk X coordinate
+     * @param chunkZ global chunk Z coordinate
+     * @return external chunk filename (e.g., "c.12.-3.mcc")
+     */
+    public static String generateExternalChunkFilename(int chunkX, int chunkZ)
+    {
+        return "c." + chunkX + "." + chunkZ + ".mcc";
+    }
+
     /**
      * Parses region coordinates from filename.
      *
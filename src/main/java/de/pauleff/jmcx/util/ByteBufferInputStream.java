@@ -0,0 +1,86 @@
+package de.pauleff.jmcx.util;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * InputStream reading the remaining bytes of a ByteBuffer without copying them.
+ * Works for heap, direct and memory-mapped buffers alike. The source buffer's position is not modified.
+ *
+ * @author Paul Ferlitz
+ */
+public class ByteBufferInputStream extends InputStream
+{
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a stream over the remaining bytes of a buffer.
+     *
+     * @param buffer buffer to read from
+     */
+    public ByteBufferInputStream(ByteBuffer buffer)
+    {
+        this.buffer = buffer.duplicate();
+    }
+
+    /**
+     * Reads the next byte.
+     *
+     * @return next byte or -1 at the end of the buffer
+     */
+    @Override
+    public int read()
+    {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    /**
+     * Reads up to len bytes into an array.
+     *
+     * @param b destination array
+     * @param off offset in destination array
+     * @param len maximum number of bytes to read
+     * @return number of bytes read or -1 at the end of the buffer
+     */
+    @Override
+    public int read(byte[] b, int off, int len)
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+        if (!buffer.hasRemaining())
+        {
+            return -1;
+        }
+
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+
+    /**
+     * Skips up to n bytes.
+     *
+     * @param n number of bytes to skip
+     * @return number of bytes skipped
+     */
+    @Override
+    public long skip(long n)
+    {
+        int count = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + count);
+        return count;
+    }
+
+    /**
+     * Gets the number of bytes left in the buffer.
+     *
+     * @return remaining bytes
+     */
+    @Override
+    public int available()
+    {
+        return buffer.remaining();
+    }
+}